@@ -0,0 +1,46 @@
+import java.io.IOException;
+
+/**
+ * Verbindet die Benchmarks (Package bench) mit den Solver-Klassen im
+ * Default-Package. Siehe bench.Tomograph.
+ */
+public class TomographBridge implements bench.Tomograph {
+    private Constraints constraints;
+    private HeuristicSolver solver;
+    private Grid root;
+    
+    @Override
+    public void load(String filename) throws IOException {
+        constraints = InputParser.parse(filename);
+        solver = new HeuristicSolver(constraints);
+        root = new Grid(constraints.getSize());
+        solver.propagateInitial(root);
+    }
+    
+    @Override
+    public long solve(int maxSolutions) {
+        solver.setMaxSolutions(maxSolutions);
+        solver.solve(solution -> { });
+        return solver.getNodeCount();
+    }
+    
+    @Override
+    public boolean propagateInitial() {
+        return solver.propagateInitial(new Grid(constraints.getSize()));
+    }
+    
+    @Override
+    public int[] selectNextCell() {
+        return solver.selectNextCell(root);
+    }
+    
+    @Override
+    public Object copyGrid() {
+        return root.copy();
+    }
+    
+    @Override
+    public double[][] computeHeatmap() {
+        return constraints.computeHeatmap();
+    }
+}
@@ -0,0 +1,33 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Eine geladene Eingabedatei aus testdata/.
+ * Das Verzeichnis kann mit -Dtomograph.data=... geändert werden.
+ */
+@State(Scope.Thread)
+public class Instance {
+    
+    @Param({
+        "tomograph00.txt", "tomograph01.txt", "tomograph02.txt", "tomograph03.txt",
+        "tomograph04.txt", "tomograph05.txt", "tomograph06.txt", "tomograph07.txt",
+        "tomograph08.txt", "tomograph09.txt", "tomograph10.txt", "tomograph11.txt"
+    })
+    public String file;
+    
+    public Tomograph tomograph;
+    
+    @Setup
+    public void load() throws IOException {
+        String dir = System.getProperty("tomograph.data", "../testdata");
+        tomograph = Tomograph.create();
+        tomograph.load(Paths.get(dir, file).toString());
+    }
+}
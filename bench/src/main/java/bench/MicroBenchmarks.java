@@ -0,0 +1,46 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Einzelne Bausteine des Solvers, jeweils auf der geladenen Eingabedatei:
+ * initiale Propagation, Zellauswahl, Grid-Kopie und Heatmap-Berechnung.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MicroBenchmarks {
+    
+    /**
+     * Enthält das Anlegen eines leeren Grids, da die Propagation es verändert.
+     */
+    @Benchmark
+    public boolean propagate(Instance instance) {
+        return instance.tomograph.propagateInitial();
+    }
+    
+    @Benchmark
+    public int[] selectNextCell(Instance instance) {
+        return instance.tomograph.selectNextCell();
+    }
+    
+    @Benchmark
+    public Object gridCopy(Instance instance) {
+        return instance.tomograph.copyGrid();
+    }
+    
+    @Benchmark
+    public double[][] computeHeatmap(Instance instance) {
+        return instance.tomograph.computeHeatmap();
+    }
+}
@@ -0,0 +1,52 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Vollständige Lösung jeder Eingabedatei, wie in Main (bis zu 100 Lösungen).
+ * 
+ * Neben den Lösungen pro Sekunde wird der Zähler "nodes" als Knoten pro
+ * Sekunde ausgegeben; ns/Knoten = 1e9 / nodes. Mit -prof gc kommt die
+ * Allokationsrate (gc.alloc.rate.norm = Bytes pro Lösung) dazu.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+    
+    /**
+     * Knotenzähler, den JMH als Rate pro Sekunde ausgibt.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+    
+    @Benchmark
+    public long solve(Instance instance, Nodes counter) {
+        long nodes = instance.tomograph.solve(100);
+        counter.nodes += nodes;
+        return nodes;
+    }
+}
@@ -0,0 +1,50 @@
+package bench;
+
+import java.io.IOException;
+
+/**
+ * Zugriff der Benchmarks auf die Solver-Klassen aus ../src.
+ * 
+ * Die Solver-Klassen liegen im Default-Package, JMH verlangt für Benchmarks
+ * aber ein benanntes Package. Die Implementierung (TomographBridge) liegt
+ * deshalb selbst im Default-Package und wird einmal per Reflection geladen;
+ * in den gemessenen Methoden ist es nur noch ein Interface-Aufruf.
+ */
+public interface Tomograph {
+    
+    /**
+     * Lädt eine Eingabedatei und führt die initiale Propagation aus.
+     */
+    void load(String filename) throws IOException;
+    
+    /**
+     * Löst die geladene Instanz vollständig und gibt die Anzahl der
+     * durchsuchten Knoten zurück.
+     */
+    long solve(int maxSolutions);
+    
+    /**
+     * Initiale Propagation über alle Linien auf einem neuen Grid.
+     */
+    boolean propagateInitial();
+    
+    /**
+     * Zellauswahl auf dem initial propagierten Grid.
+     */
+    int[] selectNextCell();
+    
+    /**
+     * Kopie des initial propagierten Grids.
+     */
+    Object copyGrid();
+    
+    double[][] computeHeatmap();
+    
+    static Tomograph create() {
+        try {
+            return (Tomograph) Class.forName("TomographBridge").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("TomographBridge nicht gefunden", e);
+        }
+    }
+}
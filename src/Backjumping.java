@@ -0,0 +1,458 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Konfliktgesteuertes Backjumping für die Suche von HeuristicSolver (siehe
+ * HeuristicSolver.setBackjumping), nur im Trail-Modus.
+ *
+ * Pro Zelle stehen die Entscheidungsebene, auf der sie gesetzt wurde, der
+ * Grund (Entscheidung, Linie, Paar-Stufe, gelerntes Nogood oder global)
+ * und ihre Trail-Position. Scheitert ein Zweig, verfolgt die Analyse die
+ * beteiligten Zellen bis zu den Entscheidungen zurück und sammelt deren
+ * Ebenen in der Konfliktmenge der Ebene. Ist ein ganzer Teilbaum ohne
+ * Lösung, springt die Suche zur jüngsten dieser Ebenen zurück und merkt
+ * sich die Entscheidungen als Nogood, das sie danach wie eine Linie
+ * propagiert.
+ */
+class Backjumping {
+    // Grund einer Zuweisung; Werte >= 0 stehen für die Linie (type << 16 | index),
+    // deren Propagation die Zelle gesetzt hat
+    static final int CAUSE_DECISION = -1;
+    static final int CAUSE_GLOBAL = -2; // Fluss, Symmetrie: hängt von allem ab
+    static final int CAUSE_NOGOOD = -3; // gelerntes Nogood
+    static final int CAUSE_PAIR = -4;   // Paar-Stufe als CAUSE_PAIR - Grund (siehe Search.pairCross)
+    
+    // Gelernte Nogoods: höchstens so viele pro Suche, jedes mit höchstens so
+    // vielen Entscheidungen (längere werden selten noch erzwingend)
+    private static final int MAX_LEARNED = 20000;
+    private static final int MAX_LEARNED_SIZE = 32;
+    
+    private final HeuristicSolver.Search search;
+    private final Constraints constraints;
+    private final Trail trail;
+    private final SolverStats stats; // null = keine Messung
+    private final int size;
+    
+    // Pro Zelle die Entscheidungsebene (-1 = vor dieser Suche gesetzt), der
+    // Grund, das erzwingende Nogood und die Trail-Position
+    private final int[] level;
+    private final int[] cause;
+    private final int[][] causeNogood;
+    private final int[] trailPos;
+    private final int[] decision;     // Literal der Entscheidung pro Ebene
+    private final BitSet[] frameConflict; // Konfliktmenge pro Ebene
+    private int currentLevel = -1;
+    private int[] forcing;            // Nogood, das die gerade gesetzte Zelle erzwingt
+    
+    private BitSet conflict;      // Ebenen des letzten Konflikts
+    private boolean hasConflict;  // conflict gehört zum letzten Fehlschlag
+    private int[] analyzeStack;
+    private int[] analyzeStamp;
+    private int analyzeEpoch;
+    private int analyzeTop;
+    private int coveredUpTo;      // alle Ebenen <= coveredUpTo sind schon im Konflikt
+    
+    // Gelernte Nogoods (Mengen von Literalen cell * 2 + value, die nicht
+    // alle gelten können), je zwei beobachtete Literale an den Stellen 0
+    // und 1; watches[lit] = Nogoods, die lit beobachten
+    private final List<int[]> learned;
+    private final int[][] watches;
+    private final int[] watchCount;
+    private int learnedHead;      // Trail-Position, bis zu der geprüft ist
+    
+    /**
+     * depths ist die größte Tiefe der Suche plus eins.
+     */
+    Backjumping(HeuristicSolver.Search search, Constraints constraints, Trail trail, int depths, SolverStats stats) {
+        this.search = search;
+        this.constraints = constraints;
+        this.trail = trail;
+        this.stats = stats;
+        this.size = constraints.getSize();
+        int cells = size * size;
+        this.level = new int[cells];
+        this.cause = new int[cells];
+        this.causeNogood = new int[cells][];
+        this.trailPos = new int[cells];
+        Arrays.fill(level, -1);
+        this.decision = new int[depths];
+        this.frameConflict = new BitSet[depths];
+        this.learned = new ArrayList<>();
+        this.watches = new int[cells * 2][];
+        this.watchCount = new int[cells * 2];
+    }
+    
+    /**
+     * Verwirft alle gelernten Nogoods, am Anfang und am Ende jeder Suche:
+     * sie gelten nur für die Zellen, die vor der Suche gesetzt waren.
+     */
+    void reset() {
+        if (!learned.isEmpty()) {
+            learned.clear();
+            Arrays.fill(watchCount, 0);
+        }
+        learnedHead = trail.size();
+        currentLevel = -1;
+    }
+    
+    /**
+     * Die Suche betritt die Ebene depth: ihre Konfliktmenge beginnt leer.
+     */
+    void enterLevel(int depth) {
+        if (frameConflict[depth] == null) {
+            frameConflict[depth] = new BitSet();
+        } else {
+            frameConflict[depth].clear();
+        }
+    }
+    
+    /**
+     * Die Suche entscheidet auf der Ebene depth das Literal cell * 2 + value;
+     * was danach gesetzt wird, gehört zu dieser Ebene.
+     */
+    void decide(int depth, int literal) {
+        currentLevel = depth;
+        decision[depth] = literal;
+        hasConflict = false;
+    }
+    
+    /**
+     * Merkt sich Ebene und Grund einer gerade gesetzten Zelle.
+     */
+    void assigned(int cell, int reason, int position) {
+        level[cell] = currentLevel;
+        if (forcing != null) {
+            cause[cell] = CAUSE_NOGOOD;
+            causeNogood[cell] = forcing;
+        } else {
+            cause[cell] = reason;
+            causeNogood[cell] = null;
+        }
+        trailPos[cell] = position;
+    }
+    
+    /**
+     * Der Trail wurde bis mark zurückgenommen.
+     */
+    void undone(int mark) {
+        learnedHead = Math.min(learnedHead, mark);
+    }
+    
+    /**
+     * Vergisst den letzten Konflikt (z.B. nach einem verworfenen Probing).
+     */
+    void clearConflict() {
+        hasConflict = false;
+    }
+    
+    /**
+     * Nach einem gescheiterten Zweig der Ebene: die Ebenen des Konflikts
+     * kommen zur Konfliktmenge der Ebene. Gibt true zurück, wenn die
+     * Entscheidung der Ebene selbst nicht beteiligt war; dann scheitert der
+     * andere Wert genauso und muss nicht mehr probiert werden. Ohne
+     * Konflikt (Lösung, Limit) bleibt alles, wie es ist; found/skipped der
+     * Suche verhindern dann den Sprung.
+     */
+    boolean branchFailed(int depth) {
+        if (!hasConflict) {
+            return false;
+        }
+        hasConflict = false;
+        frameConflict[depth].or(conflict);
+        return !conflict.get(depth);
+    }
+    
+    /**
+     * Alle Zweige der Ebene depth sind probiert. Gibt die Ebene zurück, zu
+     * der die Suche zurückkehrt: ist der Teilbaum bewiesen leer (clean),
+     * die jüngste Ebene seiner Konfliktmenge, deren Entscheidungen dann
+     * als Nogood gelernt werden, sonst die vorige. Ebenen unter baseDepth
+     * gehören nicht zu dieser Suche.
+     */
+    int target(int depth, int baseDepth, boolean clean) {
+        BitSet levels = frameConflict[depth];
+        levels.clear(0, baseDepth);
+        levels.clear(depth);
+        int target = depth - 1;
+        if (clean) {
+            target = levels.length() - 1;
+            learn(levels);
+        }
+        if (target >= baseDepth) {
+            if (clean) {
+                frameConflict[target].or(levels);
+            } else {
+                frameConflict[target].set(0, target + 1);
+            }
+        }
+        if (stats != null && target < depth - 1) {
+            stats.backjump(depth - 1 - Math.max(target, baseDepth - 1));
+        }
+        return target;
+    }
+    
+    /**
+     * Konflikt, der von allen Entscheidungen abhängen kann (Fluss,
+     * Symmetrie, Probing).
+     */
+    void conflictGlobal() {
+        if (currentLevel < 0) {
+            return;
+        }
+        beginConflict();
+        cover(currentLevel);
+    }
+    
+    /**
+     * Konflikt auf einer Linie: zu viele 1en (schuld sind ihre 1en) oder
+     * zu viele 0en (schuld sind ihre 0en).
+     */
+    void conflictLine(Grid grid, int type, int index) {
+        if (currentLevel < 0) {
+            return;
+        }
+        beginConflict();
+        pushLine(grid, type, index, remaining(grid, type, index) < 0 ? 1 : 0, Integer.MAX_VALUE);
+        analyzeConflict(grid);
+    }
+    
+    /**
+     * Der Wert der Entscheidung auf der Ebene depth ist nach
+     * isValueFeasible() unmöglich: schuld sind die Entscheidung selbst
+     * und die Zellen mit demselben Wert auf der ersten Linie der Zelle,
+     * die ihn nicht mehr verträgt.
+     */
+    void conflictInfeasible(Grid grid, int row, int col, int value, int depth) {
+        beginConflict();
+        conflict.set(depth);
+        for (int type = 0; type < Grid.LINE_TYPES; type++) {
+            int index = grid.getLineIndex(type, row, col);
+            int remaining = remaining(grid, type, index);
+            if (value == 1 ? remaining <= 0 : grid.getLineUnassigned(type, index) - 1 < remaining) {
+                pushLine(grid, type, index, value, Integer.MAX_VALUE);
+                break;
+            }
+        }
+        analyzeConflict(grid);
+    }
+    
+    /**
+     * Prüft die gelernten Nogoods gegen die Zuweisungen seit dem letzten
+     * Aufruf (zwei beobachtete Literale pro Nogood wie bei SatEngine).
+     * Gilt in einem Nogood alles bis auf ein freies Literal, bekommt
+     * dessen Zelle den anderen Wert. Gibt die Anzahl der gesetzten Zellen
+     * zurück, -1 bei einem Widerspruch.
+     */
+    int propagate(Grid grid) {
+        if (learned.isEmpty()) {
+            return 0;
+        }
+        int forced = 0;
+        while (learnedHead < trail.size()) {
+            int cell = trail.get(learnedHead++);
+            int literal = cell * 2 + grid.get(cell / size, cell % size);
+            int[] list = watches[literal];
+            int count = watchCount[literal];
+            int keep = 0;
+            for (int w = 0; w < count; w++) {
+                int id = list[w];
+                int[] nogood = learned.get(id);
+                if (nogood[0] == literal) {
+                    nogood[0] = nogood[1];
+                    nogood[1] = literal;
+                }
+                int other = literalValue(grid, nogood[0]);
+                if (other == 0) {
+                    list[keep++] = id; // Nogood schon erfüllt
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < nogood.length; k++) {
+                    if (literalValue(grid, nogood[k]) != 1) {
+                        nogood[1] = nogood[k];
+                        nogood[k] = literal;
+                        watch(nogood[1], id);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                list[keep++] = id;
+                if (other == 1) {
+                    // Alle Literale gelten: Konflikt
+                    while (++w < count) {
+                        list[keep++] = list[w];
+                    }
+                    watchCount[literal] = keep;
+                    conflictNogood(grid, nogood);
+                    return -1;
+                }
+                int target = nogood[0] >> 1;
+                forcing = nogood;
+                search.assign(grid, target / size, target % size, 1 - (nogood[0] & 1));
+                forcing = null;
+                forced++;
+            }
+            watchCount[literal] = keep;
+        }
+        return forced;
+    }
+    
+    /**
+     * Konfliktanalyse: beginnt eine neue Konfliktmenge.
+     */
+    private void beginConflict() {
+        if (conflict == null) {
+            conflict = new BitSet();
+            analyzeStack = new int[size * size];
+            analyzeStamp = new int[size * size];
+        }
+        conflict.clear();
+        coveredUpTo = -1;
+        analyzeEpoch++;
+        analyzeTop = 0;
+        hasConflict = true;
+    }
+    
+    private void conflictNogood(Grid grid, int[] nogood) {
+        if (currentLevel < 0) {
+            return;
+        }
+        beginConflict();
+        for (int literal : nogood) {
+            push(literal >> 1);
+        }
+        analyzeConflict(grid);
+    }
+    
+    /**
+     * Alle Ebenen bis upTo gehören zum Konflikt.
+     */
+    private void cover(int upTo) {
+        if (upTo > coveredUpTo) {
+            conflict.set(0, upTo + 1);
+            coveredUpTo = upTo;
+        }
+    }
+    
+    private void push(int cell) {
+        if (analyzeStamp[cell] != analyzeEpoch) {
+            analyzeStamp[cell] = analyzeEpoch;
+            analyzeStack[analyzeTop++] = cell;
+        }
+    }
+    
+    /**
+     * Legt die Zellen einer Linie mit dem Wert value auf den Stapel, die
+     * vor der Trail-Position before gesetzt wurden.
+     */
+    private void pushLine(Grid grid, int type, int index, int value, int before) {
+        int start = grid.getLineStart(type, index);
+        int end = start + grid.getLineLength(type, index);
+        for (int pos = start; pos < end; pos++) {
+            int row = grid.getCellRow(type, index, pos);
+            int col = grid.getCellCol(type, index, pos);
+            int cell = row * size + col;
+            if (grid.get(row, col) == value && level[cell] > coveredUpTo && trailPos[cell] < before) {
+                push(cell);
+            }
+        }
+    }
+    
+    /**
+     * Verfolgt die Zellen auf dem Stapel bis zu den Entscheidungen, die
+     * sie erzwungen haben, und sammelt deren Ebenen in conflict. Eine von
+     * einer Linie auf 0 gesetzte Zelle hängt nur von den 1en ab, die vor
+     * ihr auf der Linie standen (die Summe war erreicht), eine auf 1
+     * gesetzte nur von den 0en. Eine Zelle, deren anderer Wert v in der
+     * Paar-Stufe scheiterte, hängt von den v-Zellen ihrer knappen Linien
+     * und den (1 - v)-Zellen der kreuzenden Linie ab, eine von einem
+     * Nogood erzwungene von dessen übrigen Zellen. Zellen aus dem Fluss
+     * und der Symmetriebrechung hängen von allen Ebenen bis zu ihrer ab.
+     */
+    private void analyzeConflict(Grid grid) {
+        while (analyzeTop > 0) {
+            int cell = analyzeStack[--analyzeTop];
+            int lvl = level[cell];
+            if (lvl <= coveredUpTo) {
+                continue; // auch Zellen von vor der Suche (-1)
+            }
+            int reason = cause[cell];
+            if (reason == CAUSE_DECISION) {
+                conflict.set(lvl);
+            } else if (reason == CAUSE_GLOBAL) {
+                cover(lvl);
+            } else if (reason == CAUSE_NOGOOD) {
+                for (int literal : causeNogood[cell]) {
+                    push(literal >> 1);
+                }
+            } else if (reason <= CAUSE_PAIR) {
+                // Knappe Linien durch die Zelle und die kreuzende Linie
+                int row = cell / size;
+                int col = cell % size;
+                int failed = 1 - grid.get(row, col);
+                int pair = CAUSE_PAIR - reason;
+                for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                    if ((pair >> 18 & 1 << type) != 0) {
+                        pushLine(grid, type, grid.getLineIndex(type, row, col), failed, trailPos[cell]);
+                    }
+                }
+                pushLine(grid, pair >> 16 & 3, pair & 0xFFFF, 1 - failed, trailPos[cell]);
+            } else {
+                int forced = grid.get(cell / size, cell % size);
+                pushLine(grid, reason >> 16, reason & 0xFFFF, 1 - forced, trailPos[cell]);
+            }
+        }
+    }
+    
+    /**
+     * Merkt sich die Entscheidungen der Ebenen als Nogood: zusammen führen
+     * sie ohne Lösung in einen Konflikt. Beobachtet werden die beiden
+     * jüngsten Entscheidungen.
+     */
+    private void learn(BitSet levels) {
+        int count = levels.cardinality();
+        if (count < 2 || count > MAX_LEARNED_SIZE || learned.size() >= MAX_LEARNED) {
+            return;
+        }
+        int[] nogood = new int[count];
+        int i = 0;
+        for (int l = levels.length() - 1; l >= 0; l = levels.previousSetBit(l - 1)) {
+            nogood[i++] = decision[l];
+        }
+        int id = learned.size();
+        learned.add(nogood);
+        watch(nogood[0], id);
+        watch(nogood[1], id);
+        if (stats != null) {
+            stats.learned();
+        }
+    }
+    
+    private void watch(int literal, int id) {
+        int[] list = watches[literal];
+        if (list == null) {
+            list = watches[literal] = new int[4];
+        } else if (watchCount[literal] == list.length) {
+            list = watches[literal] = Arrays.copyOf(list, list.length * 2);
+        }
+        list[watchCount[literal]++] = id;
+    }
+    
+    /**
+     * 1 = Literal gilt, 0 = Zelle hat den anderen Wert, -1 = Zelle offen.
+     */
+    private int literalValue(Grid grid, int literal) {
+        int cell = literal >> 1;
+        int value = grid.get(cell / size, cell % size);
+        return value == -1 ? -1 : value == (literal & 1) ? 1 : 0;
+    }
+    
+    private int remaining(Grid grid, int type, int index) {
+        return constraints.getLineSum(type, index) - grid.getLineSum(type, index);
+    }
+}
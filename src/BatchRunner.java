@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Löst viele Eingabedateien in einer JVM und schreibt einen gemeinsamen
+ * Bericht im JSON-Lines-Format (eine Zeile pro Datei).
+ *
+ * Eingaben: ein Verzeichnis (alle *.txt darin), ein Glob-Muster wie
+ * "testdata/tomograph0*.txt" (Platzhalter nur im Dateinamen) oder eine
+ * Manifest-Datei mit "@liste.txt" (ein Pfad pro Zeile, relativ zur
+ * Manifest-Datei).
+ *
+ * Einlesen und Schreiben laufen auf einem eigenen I/O-Pool, das Lösen auf
+ * einem festen Pool mit einem Thread pro Kern. Es sind höchstens doppelt so
+ * viele Dateien gleichzeitig in Arbeit wie Solver-Threads.
+ *
+ * Mit --timeout wird jede Datei auf die angegebene Laufzeit begrenzt; ihre
+ * Zeile hat dann den Status "timeout" und enthält ein Teilergebnis.
+ *
+ * Mit --engine wird der Solver gewählt (siehe SolverRegistry); ein
+ * Portfolio belegt pro Datei einen Thread je Solver zusätzlich.
+ *
+ * Verwendung: java BatchRunner [--engine NAME] [--threads N] [--max N] [--backbone]
+ *                 [--timeout ms] [--out bericht.jsonl] <verzeichnis|glob|@manifest> ...
+ */
+public class BatchRunner {
+    private final int threads;
+    private final int maxSolutions;
+    private final boolean backbone;
+    private long timeout;
+    private String engine = SolverRegistry.DEFAULT;
+    
+    public BatchRunner(int threads, int maxSolutions, boolean backbone) {
+        this.threads = threads;
+        this.maxSolutions = maxSolutions;
+        this.backbone = backbone;
+    }
+    
+    /**
+     * Begrenzt die Laufzeit pro Datei in Millisekunden (0 = unbegrenzt).
+     */
+    public void setTimeout(long millis) {
+        this.timeout = millis;
+    }
+    
+    /**
+     * Wählt den Solver über seinen Namen in SolverRegistry.
+     */
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+    
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxSolutions = 100;
+        boolean backbone = false;
+        long timeout = 0;
+        String out = null;
+        String engine = SolverRegistry.DEFAULT;
+        List<String> inputs = new ArrayList<>();
+        
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--engine") && i + 1 < args.length) {
+                engine = args[++i];
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max") && i + 1 < args.length) {
+                maxSolutions = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--backbone")) {
+                backbone = true;
+            } else if (args[i].equals("--timeout") && i + 1 < args.length) {
+                timeout = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--out") && i + 1 < args.length) {
+                out = args[++i];
+            } else {
+                inputs.add(args[i]);
+            }
+        }
+        
+        if (inputs.isEmpty()) {
+            System.out.println("Verwendung: java BatchRunner [--engine NAME] [--threads N] [--max N] [--backbone] [--timeout ms] [--out bericht.jsonl] <verzeichnis|glob|@manifest> ...");
+            System.out.println("Beispiel: java BatchRunner --out bericht.jsonl ../testdata");
+            System.exit(1);
+        }
+        
+        try {
+            List<Path> files = new ArrayList<>();
+            for (String input : inputs) {
+                files.addAll(resolve(input));
+            }
+            
+            BatchRunner runner = new BatchRunner(threads, maxSolutions, backbone);
+            runner.setTimeout(timeout);
+            runner.setEngine(engine);
+            long start = System.currentTimeMillis();
+            if (out == null) {
+                PrintWriter writer = new PrintWriter(System.out, true);
+                runner.run(files, writer);
+                writer.flush();
+            } else {
+                try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+                    runner.run(files, writer);
+                }
+            }
+            System.err.println(files.size() + " Dateien in " + (System.currentTimeMillis() - start) + " ms gelöst");
+        } catch (Exception e) {
+            System.err.println("Fehler: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Wandelt eine Eingabe (Verzeichnis, Glob oder @Manifest) in Dateipfade um.
+     */
+    public static List<Path> resolve(String input) throws IOException {
+        List<Path> files = new ArrayList<>();
+        
+        if (input.startsWith("@")) {
+            Path manifest = Paths.get(input.substring(1));
+            Path base = manifest.toAbsolutePath().getParent();
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    files.add(base.resolve(line));
+                }
+            }
+            return files;
+        }
+        
+        Path path = Paths.get(input);
+        if (input.matches(".*[*?\\[{].*")) {
+            // Glob: Platzhalter nur im Dateinamen, z.B. testdata/tomograph0*.txt
+            Path dir = path.getParent() == null ? Paths.get(".") : path.getParent();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, path.getFileName().toString())) {
+                stream.forEach(files::add);
+            }
+        } else if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.txt")) {
+                stream.forEach(files::add);
+            }
+        } else {
+            files.add(Paths.get(input));
+        }
+        
+        files.sort(null);
+        return files;
+    }
+    
+    /**
+     * Löst alle Dateien und schreibt pro Datei eine JSON-Zeile, in der
+     * Reihenfolge, in der sie fertig werden.
+     */
+    public void run(List<Path> files, Writer out) throws InterruptedException {
+        ExecutorService ioPool = Executors.newCachedThreadPool();
+        ExecutorService solverPool = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(2 * threads);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        
+        try {
+            for (Path file : files) {
+                inFlight.acquire();
+                CompletableFuture<Void> job = CompletableFuture
+                        .supplyAsync(() -> parse(file), ioPool)
+                        .thenApplyAsync(constraints -> solve(file, constraints), solverPool)
+                        .exceptionally(e -> errorLine(file, e))
+                        .thenAcceptAsync(line -> write(out, line), ioPool)
+                        .whenComplete((result, e) -> inFlight.release());
+                pending.add(job);
+            }
+            CompletableFuture.allOf(pending.toArray(CompletableFuture<?>[]::new)).join();
+        } finally {
+            solverPool.shutdown();
+            ioPool.shutdown();
+            solverPool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+    
+    private Constraints parse(Path file) {
+        try {
+            return InputParser.parse(file.toString());
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Löst eine Instanz und baut ihre Berichtszeile.
+     */
+    private String solve(Path file, Constraints constraints) {
+        long start = System.nanoTime();
+        TomographSolver solver = SolverRegistry.create(engine, constraints);
+        solver.setMaxSolutions(maxSolutions);
+        solver.setTimeLimit(timeout);
+        
+        Grid combined;
+        String solutionCount;
+        if (backbone) {
+            combined = solver.solveBackbone();
+            solutionCount = combined == null && !solver.getStatus().isPartial() ? "0" : null;
+        } else {
+            SolutionCombiner combiner = new SolutionCombiner();
+            solver.solve(combiner);
+            combined = combiner.getCombined();
+            solutionCount = Long.toString(combiner.getCount());
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        
+        TomographSolver.Status status = solver.getStatus();
+        return new JsonLine()
+                .put("file", file.toString())
+                .put("status", status.isPartial() ? status.name().toLowerCase() : "ok")
+                .put("size", constraints.getSize())
+                .putRaw("solutions", solutionCount == null ? "null" : solutionCount)
+                .put("nodes", solver.getNodeCount())
+                .put("millis", micros / 1000.0)
+                .put("combined", combined)
+                .toString();
+    }
+    
+    private String errorLine(Path file, Throwable e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return new JsonLine()
+                .put("file", file.toString())
+                .put("status", "error")
+                .put("message", String.valueOf(cause.getMessage()))
+                .toString();
+    }
+    
+    private void write(Writer out, String line) {
+        synchronized (out) {
+            try {
+                out.write(line);
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Gemeinsames Abbruchsignal für eine oder mehrere Suchen.
+ * Der Solver prüft das Token regelmäßig während der Suche
+ * (siehe HeuristicSolver.setCancellationToken).
+ */
+public class CancellationToken {
+    private volatile boolean cancelled;
+    
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
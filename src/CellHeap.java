@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+/**
+ * Indizierter Max-Heap über Zellindizes (row * size + col) mit Scores.
+ * Bei gleichem Score gewinnt der kleinere Index, also dieselbe Zelle, die
+ * ein zeilenweiser Durchlauf mit "score > bestScore" wählen würde.
+ * Einfügen, Ändern und Entfernen einer Zelle kosten O(log n²).
+ */
+public class CellHeap {
+    private final double[] scores;
+    private final int[] heap;
+    private final int[] position; // Position im Heap, -1 = nicht enthalten
+    private int count;
+    
+    public CellHeap(int cells) {
+        this.scores = new double[cells];
+        this.heap = new int[cells];
+        this.position = new int[cells];
+        Arrays.fill(position, -1);
+        this.count = 0;
+    }
+    
+    /**
+     * Fügt eine Zelle ein oder ändert ihren Score.
+     */
+    public void update(int cell, double score) {
+        int pos = position[cell];
+        if (pos == -1) {
+            scores[cell] = score;
+            heap[count] = cell;
+            position[cell] = count;
+            siftUp(count++);
+            return;
+        }
+        double old = scores[cell];
+        scores[cell] = score;
+        if (score > old) {
+            siftUp(pos);
+        } else if (score < old) {
+            siftDown(pos);
+        }
+    }
+    
+    /**
+     * Entfernt eine Zelle, falls sie enthalten ist.
+     */
+    public void remove(int cell) {
+        int pos = position[cell];
+        if (pos == -1) {
+            return;
+        }
+        position[cell] = -1;
+        count--;
+        if (pos == count) {
+            return;
+        }
+        int last = heap[count];
+        heap[pos] = last;
+        position[last] = pos;
+        siftUp(pos);
+        siftDown(position[last]);
+    }
+    
+    /**
+     * Gibt die Zelle mit dem höchsten Score zurück, -1 wenn der Heap leer ist.
+     */
+    public int peek() {
+        return count == 0 ? -1 : heap[0];
+    }
+    
+    public boolean isEmpty() {
+        return count == 0;
+    }
+    
+    /**
+     * Schreibt die bis zu k Zellen mit den höchsten Scores absteigend in
+     * cells und gibt ihre Anzahl zurück, ohne den Heap zu ändern. Betrachtet
+     * werden nur die Kinder der schon gewählten Zellen, das kostet O(k²)
+     * unabhängig von der Größe des Heaps.
+     */
+    public int top(int k, int[] cells) {
+        int[] frontier = new int[k + 1]; // Heap-Positionen der Kandidaten
+        int open = 0;
+        if (count > 0) {
+            frontier[open++] = 0;
+        }
+        int found = 0;
+        while (found < k && open > 0) {
+            int best = 0;
+            for (int i = 1; i < open; i++) {
+                if (before(heap[frontier[i]], heap[frontier[best]])) {
+                    best = i;
+                }
+            }
+            int pos = frontier[best];
+            frontier[best] = frontier[--open];
+            cells[found++] = heap[pos];
+            int child = 2 * pos + 1;
+            if (child < count) {
+                frontier[open++] = child;
+            }
+            if (child + 1 < count) {
+                frontier[open++] = child + 1;
+            }
+        }
+        return found;
+    }
+    
+    private boolean before(int a, int b) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+    
+    private void siftUp(int pos) {
+        int cell = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!before(cell, heap[parent])) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            position[heap[pos]] = pos;
+            pos = parent;
+        }
+        heap[pos] = cell;
+        position[cell] = pos;
+    }
+    
+    private void siftDown(int pos) {
+        int cell = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], cell)) {
+                break;
+            }
+            heap[pos] = heap[child];
+            position[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = cell;
+        position[cell] = pos;
+    }
+}
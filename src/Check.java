@@ -0,0 +1,449 @@
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Regressionsprüfung: vergleicht alle Solver und Optionen mit einer
+ * unabhängigen Brute-Force-Aufzählung.
+ *
+ * Verwendung: java Check [--zufall N] [--seed S] [--timeout ms] [dateien|verzeichnisse ...]
+ *
+ * Ohne Dateien werden alle *.txt in testdata/ geprüft, mit --zufall
+ * zusätzlich N zufällige kleine Instanzen: ohne Struktur, symmetrisch
+ * (Spiegelung oder Drehung, für die Symmetriebrechung) und zerfallend
+ * (unabhängige mehrdeutige Stellen, für Zerlegung und Zähl-Cache). Die
+ * Referenz ist eine Tiefensuche Zelle für Zelle, die nur die Summen der
+ * vier Linien als Schranken nutzt und keinen Code mit den Solvern teilt.
+ *
+ * Jede Konfiguration (alle Namen aus SolverRegistry und einige Optionen
+ * von HeuristicSolver, siehe configurations()) muss auf demselben Objekt
+ * nacheinander liefern:
+ * - solve() und solve(Consumer): genau die Lösungen der Referenz
+ * - solve() mit Lösungslimit: so viele verschiedene Lösungen der Referenz
+ * - solveBackbone(): die kombinierte Ausgabe der Referenz
+ * - countSolutions() (nur HeuristicSolver): Anzahl und Anzahl pro Zelle
+ *
+ * Instanzen, deren Referenz das Zeitlimit überschreitet oder mehr als
+ * MAX_REFERENCE Lösungen hat, werden übersprungen, ebenso Läufe, die ein
+ * Limit erreichen. Der Exit-Code ist 1, wenn eine Prüfung fehlschlägt.
+ */
+public class Check {
+    private static final int MAX_REFERENCE = 2000;
+    private static final int LIMITED = 3; // Lösungslimit für die Prüfung mit Limit
+    
+    private final long timeout;
+    private int checks;
+    private int failures;
+    private int skipped;
+    
+    public Check(long timeout) {
+        this.timeout = timeout;
+    }
+    
+    public static void main(String[] args) {
+        int randomCount = 0;
+        long seed = 1;
+        long timeout = 10000;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--zufall") && i + 1 < args.length) {
+                randomCount = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--timeout") && i + 1 < args.length) {
+                timeout = Long.parseLong(args[++i]);
+            } else {
+                inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty()) {
+            inputs.add("testdata");
+        }
+        
+        Check check = new Check(timeout);
+        try {
+            for (String input : inputs) {
+                File file = new File(input);
+                File[] files = file.isDirectory() ? file.listFiles((dir, name) -> name.endsWith(".txt")) : new File[]{file};
+                Arrays.sort(files);
+                for (File f : files) {
+                    check.run(f.getName(), InputParser.parse(f.getPath()));
+                }
+            }
+            Random random = new Random(seed);
+            for (int i = 1; i <= randomCount; i++) {
+                int kind = i % 3;
+                Constraints constraints = randomInstance(random, kind);
+                String[] kinds = {"zerfallend", "zufall", "symmetrisch"};
+                check.run(kinds[kind] + "-" + i + " (" + constraints.getSize() + "x" + constraints.getSize() + ")", constraints);
+            }
+        } catch (Exception e) {
+            System.err.println("Fehler: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+        
+        System.out.println();
+        System.out.println(check.checks + " Prüfungen, " + check.failures + " Fehler, " + check.skipped + " übersprungen");
+        System.exit(check.failures > 0 ? 1 : 0);
+    }
+    
+    /**
+     * Die geprüften Konfigurationen: jeder Name aus SolverRegistry und
+     * HeuristicSolver mit abweichenden Optionen.
+     */
+    private static Map<String, Function<Constraints, TomographSolver>> configurations() {
+        Map<String, Function<Constraints, TomographSolver>> configs = new LinkedHashMap<>();
+        for (String name : SolverRegistry.getNames()) {
+            configs.put(name, constraints -> SolverRegistry.create(name, constraints));
+        }
+        configs.put("kopie", heuristic(solver -> solver.setUseTrail(false)));
+        configs.put("parallel", heuristic(solver -> solver.setParallelism(4)));
+        configs.put("ohne-paare", heuristic(solver -> solver.setPairPropagation(false)));
+        configs.put("fluss-immer", heuristic(solver -> solver.setFlowInterval(1)));
+        configs.put("cache-klein", heuristic(solver -> solver.setCountCache(1)));
+        configs.put("nogoods", heuristic(solver -> solver.setNogoodCache(4)));
+        configs.put("ohne-zerlegung", heuristic(solver -> solver.setDecomposition(false)));
+        configs.put("cbj-probe", heuristic(solver -> {
+            solver.setBackjumping(true);
+            solver.setProbing(true);
+        }));
+        return configs;
+    }
+    
+    private static Function<Constraints, TomographSolver> heuristic(Consumer<HeuristicSolver> setup) {
+        return constraints -> {
+            HeuristicSolver solver = new HeuristicSolver(constraints);
+            setup.accept(solver);
+            return solver;
+        };
+    }
+    
+    /**
+     * Prüft alle Konfigurationen auf einer Instanz.
+     */
+    private void run(String name, Constraints constraints) {
+        Reference reference = new Reference(constraints, System.nanoTime() + timeout * 1000000);
+        if (!reference.complete) {
+            skipped++;
+            System.out.println(name + ": übersprungen (Referenz zu groß oder zu langsam)");
+            return;
+        }
+        int before = failures;
+        int checksBefore = checks;
+        for (Map.Entry<String, Function<Constraints, TomographSolver>> config : configurations().entrySet()) {
+            check(name + " [" + config.getKey() + "]", config.getValue().apply(constraints), reference);
+        }
+        System.out.println(name + ": " + reference.solutions.size() + " Lösungen, "
+                + (checks - checksBefore) + " Prüfungen, " + (failures - before) + " Fehler");
+    }
+    
+    private void check(String name, TomographSolver solver, Reference reference) {
+        solver.setTimeLimit(timeout);
+        solver.setMaxSolutions(Integer.MAX_VALUE);
+        List<Grid> all = solver.solve();
+        if (finished(solver)) {
+            expect(name, "solve()", matches(all, reference, false));
+        }
+        
+        List<Grid> streamed = new ArrayList<>();
+        solver.solve(streamed::add);
+        if (finished(solver)) {
+            expect(name, "solve(Consumer)", matches(streamed, reference, false));
+        }
+        
+        solver.setMaxSolutions(LIMITED);
+        List<Grid> first = solver.solve();
+        if (finished(solver)) {
+            expect(name, "solve() mit Limit " + LIMITED, matches(first, reference, true));
+        }
+        
+        Grid combined = solver.solveBackbone();
+        if (finished(solver)) {
+            expect(name, "solveBackbone()", String.valueOf(combined).equals(String.valueOf(reference.combined)));
+        }
+        
+        if (solver instanceof HeuristicSolver) {
+            SolutionCount count = ((HeuristicSolver) solver).countSolutions();
+            if (finished(solver)) {
+                expect(name, "countSolutions()", count != null && reference.matches(count));
+            }
+        }
+    }
+    
+    /**
+     * true, wenn der letzte Lauf ohne Zeit- oder Knotenlimit geendet hat.
+     */
+    private boolean finished(TomographSolver solver) {
+        if (solver.getStatus().isPartial()) {
+            skipped++;
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Vergleicht gefundene Lösungen mit der Referenz: alle verschieden und
+     * gültig, und entweder alle Lösungen oder (limited) genau so viele,
+     * wie das Limit zulässt.
+     */
+    private static boolean matches(List<Grid> found, Reference reference, boolean limited) {
+        Set<String> distinct = new HashSet<>();
+        for (Grid grid : found) {
+            String text = grid.toString();
+            if (!reference.solutions.contains(text) || !distinct.add(text)) {
+                return false;
+            }
+        }
+        int expected = limited ? Math.min(LIMITED, reference.solutions.size()) : reference.solutions.size();
+        return distinct.size() == expected;
+    }
+    
+    private void expect(String name, String what, boolean ok) {
+        checks++;
+        if (!ok) {
+            failures++;
+            System.out.println("FEHLER " + name + ": " + what + " weicht von der Referenz ab");
+        }
+    }
+    
+    /**
+     * Erzeugt eine zufällige Instanz: 0 = zerfallend, 1 = ohne Struktur,
+     * 2 = symmetrisch.
+     */
+    private static Constraints randomInstance(Random random, int kind) {
+        if (kind == 0) {
+            return TomographGenerator.computeConstraints(ghostImage(20, 4, random));
+        }
+        int size = 6 + random.nextInt(6);
+        Grid image = TomographGenerator.randomImage(size, 0.3 + 0.4 * random.nextDouble(), random);
+        if (kind == 2) {
+            image = symmetrize(image, random.nextInt(4));
+        }
+        return TomographGenerator.computeConstraints(image);
+    }
+    
+    /**
+     * Macht ein Bild invariant unter einer Abbildung (0 = Spiegelung an der
+     * Mittelsenkrechten, 1 = Drehung um 180 Grad, 2 = Spiegelung an der
+     * Hauptdiagonale, 3 = Drehung um 90 Grad): jede Zelle bekommt den Wert
+     * der kleinsten Zelle ihrer Bahn.
+     */
+    private static Grid symmetrize(Grid image, int mapping) {
+        int size = image.getSize();
+        Grid result = new Grid(size);
+        for (int cell = 0; cell < size * size; cell++) {
+            int smallest = cell;
+            for (int p = map(mapping, cell, size); p != cell; p = map(mapping, p, size)) {
+                smallest = Math.min(smallest, p);
+            }
+            result.set(cell / size, cell % size, image.get(smallest / size, smallest % size));
+        }
+        return result;
+    }
+    
+    private static int map(int mapping, int cell, int size) {
+        int row = cell / size;
+        int col = cell % size;
+        switch (mapping) {
+            case 0:
+                return row * size + (size - 1 - col);
+            case 1:
+                return (size - 1 - row) * size + (size - 1 - col);
+            case 2:
+                return col * size + row;
+            default:
+                return col * size + (size - 1 - row);
+        }
+    }
+    
+    /**
+     * Leeres Bild mit bis zu count Stellen, die sich jeweils auf zwei Arten
+     * füllen lassen: 16 Punkte p + Summe einer Teilmenge von (0,1), (1,0),
+     * (1,1), (1,-1), gefüllt bei gerader Teilmengengröße. Jede Linie
+     * enthält davon gleich viele gefüllte wie leere Punkte, der Tausch
+     * ändert also keine Summe. Die Stellen teilen keine Linie, das
+     * Restproblem zerfällt also in unabhängige Komponenten.
+     */
+    private static Grid ghostImage(int size, int count, Random random) {
+        int[][] steps = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        Grid image = TomographGenerator.randomImage(size, 0, random);
+        Set<Long> used = new HashSet<>();
+        int placed = 0;
+        for (int attempt = 0; attempt < 1000 && placed < count; attempt++) {
+            int row = random.nextInt(size - 4);
+            int col = 1 + random.nextInt(size - 4);
+            int[] cells = new int[16];
+            Set<Long> lines = new HashSet<>();
+            for (int subset = 0; subset < 16; subset++) {
+                int r = row;
+                int c = col;
+                for (int s = 0; s < 4; s++) {
+                    if ((subset >> s & 1) != 0) {
+                        r += steps[s][0];
+                        c += steps[s][1];
+                    }
+                }
+                cells[subset] = r * size + c;
+                for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                    lines.add((long) type << 32 | image.getLineIndex(type, r, c));
+                }
+            }
+            if (lines.stream().anyMatch(used::contains)) {
+                continue;
+            }
+            used.addAll(lines);
+            placed++;
+            for (int subset = 0; subset < 16; subset++) {
+                if (Integer.bitCount(subset) % 2 == 0) {
+                    image.set(cells[subset] / size, cells[subset] % size, 1);
+                }
+            }
+        }
+        return image;
+    }
+    
+    /**
+     * Alle Lösungen einer Instanz, aufgezählt mit einer Tiefensuche in
+     * Zeilenreihenfolge: eine Zelle bekommt einen Wert nur, wenn danach
+     * jede ihrer vier Linien ihre Summe noch erreichen kann, ohne sie zu
+     * überschreiten.
+     */
+    private static class Reference {
+        final Set<String> solutions = new HashSet<>();
+        final Constraints constraints;
+        final int size;
+        final long[] filled;   // Lösungen, in denen die Zelle gefüllt ist
+        final int[][] sum;     // gefüllte Zellen pro Linie
+        final int[][] open;    // offene Zellen pro Linie
+        final Grid grid;
+        final long deadline;
+        Grid combined;         // null ohne Lösung
+        boolean complete = true;
+        int untilTimeCheck;
+        
+        Reference(Constraints constraints, long deadline) {
+            this.constraints = constraints;
+            this.size = constraints.getSize();
+            this.filled = new long[size * size];
+            this.grid = new Grid(size);
+            this.deadline = deadline;
+            this.sum = new int[Grid.LINE_TYPES][];
+            this.open = new int[Grid.LINE_TYPES][];
+            for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                sum[type] = new int[grid.getLineCount(type)];
+                open[type] = new int[grid.getLineCount(type)];
+                for (int index = 0; index < open[type].length; index++) {
+                    open[type][index] = grid.getLineLength(type, index);
+                }
+            }
+            search();
+        }
+        
+        /**
+         * Iterativ, damit auch große Grids keinen Stapelüberlauf auslösen:
+         * next[cell] ist der nächste Wert, den die Zelle probiert.
+         */
+        private void search() {
+            int cells = size * size;
+            int[] next = new int[cells];
+            int cell = 0;
+            while (true) {
+                if (--untilTimeCheck <= 0) {
+                    untilTimeCheck = 4096;
+                    if (System.nanoTime() - deadline >= 0) {
+                        complete = false;
+                    }
+                }
+                if (!complete) {
+                    return;
+                }
+                if (cell == cells) {
+                    record();
+                } else if (next[cell] <= 1) {
+                    int value = next[cell]++;
+                    if (place(cell / size, cell % size, value)) {
+                        grid.set(cell / size, cell % size, value);
+                        cell++;
+                    } else {
+                        unplace(cell / size, cell % size, value);
+                    }
+                    continue;
+                } else {
+                    next[cell] = 0;
+                    grid.set(cell / size, cell % size, -1);
+                }
+                // zurück zur vorigen Zelle
+                if (--cell < 0) {
+                    return;
+                }
+                unplace(cell / size, cell % size, next[cell] - 1);
+            }
+        }
+        
+        /**
+         * Trägt den Wert in die Linienzähler ein und prüft die Schranken.
+         * Die Zähler werden in jedem Fall mit unplace() zurückgesetzt.
+         */
+        private boolean place(int row, int col, int value) {
+            boolean ok = true;
+            for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                int index = grid.getLineIndex(type, row, col);
+                sum[type][index] += value;
+                open[type][index]--;
+                int target = constraints.getLineSum(type, index);
+                if (sum[type][index] > target || sum[type][index] + open[type][index] < target) {
+                    ok = false;
+                }
+            }
+            return ok;
+        }
+        
+        private void unplace(int row, int col, int value) {
+            for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                int index = grid.getLineIndex(type, row, col);
+                sum[type][index] -= value;
+                open[type][index]++;
+            }
+        }
+        
+        private void record() {
+            if (solutions.size() >= MAX_REFERENCE) {
+                complete = false;
+                return;
+            }
+            solutions.add(grid.toString());
+            if (combined == null) {
+                combined = grid.copy();
+            }
+            for (int cell = 0; cell < size * size; cell++) {
+                int value = grid.get(cell / size, cell % size);
+                filled[cell] += value;
+                if (combined.get(cell / size, cell % size) != value) {
+                    combined.set(cell / size, cell % size, -1);
+                }
+            }
+        }
+        
+        boolean matches(SolutionCount count) {
+            if (!count.getTotal().equals(BigInteger.valueOf(solutions.size()))) {
+                return false;
+            }
+            for (int cell = 0; cell < size * size; cell++) {
+                if (!count.getFilled(cell / size, cell % size).equals(BigInteger.valueOf(filled[cell]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Zerlegt die offenen Zellen eines Grids in unabhängige Komponenten.
+ *
+ * Zwei offene Zellen gehören zur selben Komponente, wenn sie (auch über
+ * andere offene Zellen) durch Zeilen, Spalten oder Diagonalen verbunden
+ * sind. Jede Linie mit offenen Zellen gehört damit zu genau einer
+ * Komponente, ihre Restsumme hängt nur von deren Zellen ab. Die
+ * Komponenten lassen sich also getrennt lösen: das Restproblem hat genau
+ * dann eine Lösung, wenn jede Komponente eine hat, die Lösungsanzahlen
+ * multiplizieren sich und die mehrdeutigen Zellen sind die Vereinigung.
+ *
+ * Berechnet mit Union-Find über die Linien; die Arrays werden zwischen den
+ * Aufrufen wiederverwendet. Für die Lösungszählung liefert key() einen
+ * Schlüssel, der eine Komponente samt den Restsummen ihrer Linien erkennt.
+ */
+public class Components {
+    private final int size;
+    private final int[] parent; // Union-Find über die Zellen (row * size + col)
+    private final int[] count;  // Zellen pro Wurzel
+    private final int[][] byRoot; // Zellen der Komponente pro Wurzel, vor jeder Benutzung geleert
+    private final int[][] lineCell;  // erste offene Zelle pro Linie (split) bzw. Marke (key)
+    private final int[][] lineStamp; // == epoch, wenn lineCell gilt
+    private int epoch;
+    
+    public Components(int size) {
+        this.size = size;
+        this.parent = new int[size * size];
+        this.count = new int[size * size];
+        this.byRoot = new int[size * size][];
+        this.lineCell = new int[Grid.LINE_TYPES][];
+        this.lineStamp = new int[Grid.LINE_TYPES][];
+        for (int type = 0; type < Grid.LINE_TYPES; type++) {
+            int lines = type <= Grid.COL ? size : 2 * size - 1;
+            lineCell[type] = new int[lines];
+            lineStamp[type] = new int[lines];
+        }
+    }
+    
+    /**
+     * Gibt die Komponenten der offenen Zellen als Arrays von Zellindizes
+     * zurück, die kleinsten zuerst (bei gleicher Größe nach der ersten
+     * Zelle). Ohne offene Zellen ist die Liste leer.
+     */
+    public List<int[]> split(Grid grid) {
+        int cells = size * size;
+        for (int cell = 0; cell < cells; cell++) {
+            parent[cell] = cell;
+        }
+        for (int type = 0; type < Grid.LINE_TYPES; type++) {
+            for (int index = 0; index < grid.getLineCount(type); index++) {
+                if (grid.getLineUnassigned(type, index) < 2) {
+                    continue;
+                }
+                int first = -1;
+                int start = grid.getLineStart(type, index);
+                for (int pos = start; pos < start + grid.getLineLength(type, index); pos++) {
+                    int row = grid.getCellRow(type, index, pos);
+                    int col = grid.getCellCol(type, index, pos);
+                    if (grid.isAssigned(row, col)) {
+                        continue;
+                    }
+                    int cell = row * size + col;
+                    if (first == -1) {
+                        first = find(cell);
+                    } else {
+                        int root = find(cell);
+                        if (root != first) {
+                            parent[root] = first;
+                        }
+                    }
+                }
+            }
+        }
+        
+        // Zellen nach Wurzel einsammeln
+        Arrays.fill(count, 0);
+        int roots = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (!grid.isAssigned(cell / size, cell % size)) {
+                int root = find(cell);
+                if (count[root]++ == 0) {
+                    byRoot[root] = null;
+                    roots++;
+                }
+            }
+        }
+        List<int[]> components = new ArrayList<>(roots);
+        for (int cell = 0; cell < cells; cell++) {
+            if (grid.isAssigned(cell / size, cell % size)) {
+                continue;
+            }
+            int root = find(cell);
+            if (byRoot[root] == null) {
+                byRoot[root] = new int[count[root]];
+                components.add(byRoot[root]);
+                count[root] = 0;
+            }
+            byRoot[root][count[root]++] = cell;
+        }
+        components.sort((a, b) -> a.length != b.length ? Integer.compare(a.length, b.length) : Integer.compare(a[0], b[0]));
+        return components;
+    }
+    
+    /**
+     * Wie split(Grid), aber nur für die offenen Zellen aus cells
+     * (aufsteigend sortiert). Die offenen Zellen jeder Linie durch diese
+     * Zellen müssen alle in cells liegen, cells also Teil einer Komponente
+     * sein. Braucht nur Zeit proportional zu cells, nicht zum ganzen Grid.
+     */
+    public List<int[]> split(Grid grid, int[] cells) {
+        epoch++;
+        int open = 0;
+        for (int cell : cells) {
+            int row = cell / size;
+            int col = cell % size;
+            if (grid.isAssigned(row, col)) {
+                continue;
+            }
+            open++;
+            parent[cell] = cell;
+            for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                int index = grid.getLineIndex(type, row, col);
+                if (lineStamp[type][index] != epoch) {
+                    lineStamp[type][index] = epoch;
+                    lineCell[type][index] = cell;
+                } else {
+                    int root = find(cell);
+                    int other = find(lineCell[type][index]);
+                    if (root != other) {
+                        parent[root] = other;
+                    }
+                }
+            }
+        }
+        
+        List<int[]> components = new ArrayList<>();
+        if (open == 0) {
+            return components;
+        }
+        for (int cell : cells) {
+            if (!grid.isAssigned(cell / size, cell % size)) {
+                int root = find(cell);
+                count[root] = 0;
+                byRoot[root] = null;
+            }
+        }
+        for (int cell : cells) {
+            if (!grid.isAssigned(cell / size, cell % size)) {
+                count[find(cell)]++;
+            }
+        }
+        for (int cell : cells) {
+            if (grid.isAssigned(cell / size, cell % size)) {
+                continue;
+            }
+            int root = find(cell);
+            if (byRoot[root] == null) {
+                byRoot[root] = new int[count[root]];
+                components.add(byRoot[root]);
+                count[root] = 0;
+            }
+            byRoot[root][count[root]++] = cell;
+        }
+        components.sort((a, b) -> a.length != b.length ? Integer.compare(a.length, b.length) : Integer.compare(a[0], b[0]));
+        return components;
+    }
+    
+    /**
+     * Schlüssel einer Komponente (offene Zellen aufsteigend) für
+     * NogoodTable: [0] ist ein Zobrist-Hash, [1] die Anzahl der Zellen und
+     * Linien, danach die Zellen (zwei pro long) und jede ihrer Linien mit
+     * ihrer gefüllten Anzahl (zwei pro long, in der Reihenfolge des ersten
+     * Auftretens). Da die Linien nur Zellen dieser Komponente offen haben,
+     * bestimmen Zellen und Restsummen alle Lösungen der Komponente; gleiche
+     * Schlüssel stehen für dasselbe Teilproblem.
+     */
+    public long[] key(Grid grid, int[] cells) {
+        epoch++;
+        int lines = 0;
+        int[] entries = new int[cells.length * Grid.LINE_TYPES];
+        long hash = 0;
+        for (int cell : cells) {
+            int row = cell / size;
+            int col = cell % size;
+            hash ^= Grid.zobrist((1L << 61) | cell);
+            for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                int index = grid.getLineIndex(type, row, col);
+                if (lineStamp[type][index] != epoch) {
+                    lineStamp[type][index] = epoch;
+                    int sum = grid.getLineSum(type, index);
+                    hash ^= Grid.lineKey(type, index, sum);
+                    entries[lines++] = type << 30 | index << 16 | sum;
+                }
+            }
+        }
+        int cellWords = (cells.length + 1) / 2;
+        long[] key = new long[2 + cellWords + (lines + 1) / 2];
+        key[0] = hash;
+        key[1] = (long) lines << 32 | cells.length;
+        for (int i = 0; i < cells.length; i++) {
+            key[2 + i / 2] |= (long) cells[i] << ((i & 1) << 5);
+        }
+        for (int i = 0; i < lines; i++) {
+            key[2 + cellWords + i / 2] |= (entries[i] & 0xFFFFFFFFL) << ((i & 1) << 5);
+        }
+        return key;
+    }
+    
+    /**
+     * Schlüssel des ganzen Restproblems wie key(Grid, int[]) über alle
+     * offenen Zellen, aber mit dem inkrementellen Hash Grid.getHash() als
+     * Element 0, damit NogoodTable.containsHash() ohne den Schlüssel prüfen
+     * kann.
+     */
+    public long[] key(Grid grid) {
+        int[] open = new int[size * size - grid.countAssigned()];
+        int count = 0;
+        for (int cell = 0; cell < size * size; cell++) {
+            if (!grid.isAssigned(cell / size, cell % size)) {
+                open[count++] = cell;
+            }
+        }
+        long[] key = key(grid, open);
+        key[0] = grid.getHash();
+        return key;
+    }
+    
+    private int find(int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+        return cell;
+    }
+}
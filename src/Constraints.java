@@ -38,6 +38,18 @@ public class Constraints {
         return diagUpSums[k];
     }
     
+    /**
+     * Gibt die Zielsumme einer Linie zurück (Linientypen siehe Grid).
+     */
+    public int getLineSum(int type, int index) {
+        switch (type) {
+            case Grid.ROW: return rowSums[index];
+            case Grid.COL: return colSums[index];
+            case Grid.DIAG_DOWN: return diagDownSums[index];
+            default: return diagUpSums[index];
+        }
+    }
+    
     public int[] getColSums() {
         return colSums;
     }
@@ -0,0 +1,429 @@
+import java.util.Arrays;
+
+/**
+ * Prüft mit einem maximalen Fluss, ob sich die freien Zellen noch so füllen
+ * lassen, dass zwei Linienfamilien gleichzeitig ihre Summen erreichen
+ * (Zeilen und Spalten oder Haupt- und Nebendiagonalen).
+ *
+ * Jede freie Zelle ist eine Kante mit Kapazität 1 zwischen ihrer Linie der
+ * ersten Familie (A) und ihrer Linie der zweiten Familie (B), jede Linie
+ * braucht so viel Fluss, wie ihr noch an gefüllten Zellen fehlt. Zwei Linien
+ * verschiedener Familien schneiden sich höchstens in einer Zelle, jede Kante
+ * ist also eindeutig. Reicht der maximale Fluss nicht für alle Linien, hat
+ * der Teilbaum keine Lösung, auch wenn jede Linie für sich noch passt.
+ *
+ * Der Fluss der letzten Prüfung wird weiterverwendet: Fluss über inzwischen
+ * zugewiesene Zellen und über den Bedarf hinaus wird gestrichen, danach wird
+ * nur das Fehlende mit augmentierenden Pfaden ergänzt. Nach einer Zuweisung
+ * sind das meist nur wenige Pfade. Beim Backtracking muss nichts
+ * zurückgesetzt werden, weil freigegebene Zellen und größerer Bedarf den
+ * alten Fluss gültig lassen.
+ */
+public class FlowCheck {
+    private final Constraints constraints;
+    private final int size;
+    private final int words;
+    private final int typeA;
+    private final int typeB;
+    private final int linesA;
+    private final int linesB;
+    
+    // Zellen mit Fluss als Bitmaske pro Linie A, Bitpositionen wie in Grid
+    private final long[] flow;
+    private final int[] flowA; // Fluss pro Linie A
+    private final int[] flowB; // Fluss pro Linie B
+    
+    // Breitensuche nach augmentierenden Pfaden
+    private final int[] parentA;  // Linie B, über die A erreicht wurde (-1 = Start)
+    private final int[] parentB;  // Linie A, über die B erreicht wurde
+    private final int[] visitedA; // == visit, wenn in der aktuellen Suche besucht
+    private final int[] visitedB;
+    private final int[] queue;
+    private int visit;
+    
+    // Starke Zusammenhangskomponenten des Restgraphen (Tarjan, iterativ).
+    // Knoten 0 bis linesA-1 sind Linien A, danach folgen die Linien B.
+    private final int[] order;     // DFS-Nummer + 1, 0 = unbesucht
+    private final int[] low;
+    private final int[] component;
+    private final boolean[] onStack;
+    private final int[] stack;
+    private final int[] callNode;  // Aufrufstapel der Tiefensuche
+    private final int[] callPos;   // nächste zu prüfende Bitposition des Knotens
+    
+    public FlowCheck(Constraints constraints, int typeA, int typeB) {
+        this.constraints = constraints;
+        this.size = constraints.getSize();
+        this.words = (size + 63) >>> 6;
+        this.typeA = typeA;
+        this.typeB = typeB;
+        this.linesA = typeA == Grid.ROW || typeA == Grid.COL ? size : 2 * size - 1;
+        this.linesB = typeB == Grid.ROW || typeB == Grid.COL ? size : 2 * size - 1;
+        this.flow = new long[linesA * words];
+        this.flowA = new int[linesA];
+        this.flowB = new int[linesB];
+        this.parentA = new int[linesA];
+        this.parentB = new int[linesB];
+        this.visitedA = new int[linesA];
+        this.visitedB = new int[linesB];
+        this.queue = new int[linesA];
+        int nodes = linesA + linesB;
+        this.order = new int[nodes];
+        this.low = new int[nodes];
+        this.component = new int[nodes];
+        this.onStack = new boolean[nodes];
+        this.stack = new int[nodes];
+        this.callNode = new int[nodes];
+        this.callPos = new int[nodes];
+    }
+    
+    /**
+     * Gibt false zurück, wenn die beiden Familien mit den freien Zellen nicht
+     * mehr gleichzeitig erfüllt werden können.
+     */
+    public boolean check(Grid grid) {
+        int needA = 0;
+        int total = 0;
+        for (int a = 0; a < linesA; a++) {
+            int need = remaining(grid, typeA, a);
+            if (need < 0) {
+                return false;
+            }
+            needA += need;
+            releaseAssigned(grid, a);
+            while (flowA[a] > need) {
+                cancelOnA(grid, a);
+            }
+        }
+        int needB = 0;
+        for (int b = 0; b < linesB; b++) {
+            int need = remaining(grid, typeB, b);
+            if (need < 0) {
+                return false;
+            }
+            needB += need;
+            while (flowB[b] > need) {
+                cancelOnB(grid, b);
+            }
+        }
+        if (needA != needB) {
+            return false; // jede gefüllte Zelle zählt in beiden Familien
+        }
+        
+        for (int a = 0; a < linesA; a++) {
+            total += flowA[a];
+        }
+        if (needA - total > linesA) {
+            total += fillGreedy(grid); // z.B. beim ersten Aufruf
+        }
+        while (total < needA) {
+            if (!augment(grid)) {
+                return false;
+            }
+            total++;
+        }
+        return true;
+    }
+    
+    /**
+     * Sucht nach einem erfolgreichen check() die freien Zellen, die in jedem
+     * maximalen Fluss gleich belegt sind, und schreibt sie als
+     * Zellindex * 2 + Wert nach fixed. Gibt deren Anzahl zurück.
+     * 
+     * Weil der Fluss jeden Bedarf genau deckt, unterscheiden sich zwei
+     * Lösungen des Teilproblems nur um alternierende Kreise im Restgraphen
+     * (freie Zelle ohne Fluss: A nach B, Zelle mit Fluss: B nach A). Eine
+     * Zelle kann ihren Wert also nur ändern, wenn ihre beiden Linien in
+     * derselben starken Zusammenhangskomponente liegen; sonst ist sie in
+     * jeder Lösung der beiden Familien 1 (mit Fluss) bzw. 0 (ohne).
+     */
+    public int findFixed(Grid grid, int[] fixed) {
+        computeComponents(grid);
+        int count = 0;
+        for (int a = 0; a < linesA; a++) {
+            for (int w = 0; w < words; w++) {
+                long free = grid.getUnassignedMask(typeA, a, w);
+                while (free != 0) {
+                    int pos = (w << 6) + Long.numberOfTrailingZeros(free);
+                    free &= free - 1;
+                    int b = lineB(grid, a, pos);
+                    if (component[a] != component[linesA + b]) {
+                        int cell = grid.getCellRow(typeA, a, pos) * size + grid.getCellCol(typeA, a, pos);
+                        fixed[count++] = cell * 2 + (hasFlow(a, pos) ? 1 : 0);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+    
+    private void computeComponents(Grid grid) {
+        int nodes = linesA + linesB;
+        Arrays.fill(order, 0);
+        int counter = 0;
+        int components = 0;
+        int top = 0;
+        
+        for (int root = 0; root < nodes; root++) {
+            if (order[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            callNode[0] = root;
+            callPos[0] = startPos(grid, root);
+            order[root] = low[root] = ++counter;
+            stack[top++] = root;
+            onStack[root] = true;
+            
+            while (depth >= 0) {
+                int node = callNode[depth];
+                int next = nextNeighbour(grid, node, depth);
+                if (next != -1) {
+                    if (order[next] == 0) {
+                        depth++;
+                        callNode[depth] = next;
+                        callPos[depth] = startPos(grid, next);
+                        order[next] = low[next] = ++counter;
+                        stack[top++] = next;
+                        onStack[next] = true;
+                    } else if (onStack[next]) {
+                        low[node] = Math.min(low[node], order[next]);
+                    }
+                    continue;
+                }
+                
+                // Alle Nachbarn besucht: Komponente abschließen, zurück zum Aufrufer
+                if (low[node] == order[node]) {
+                    int member;
+                    do {
+                        member = stack[--top];
+                        onStack[member] = false;
+                        component[member] = components;
+                    } while (member != node);
+                    components++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNode[depth];
+                    low[parent] = Math.min(low[parent], low[node]);
+                }
+            }
+        }
+    }
+    
+    private int startPos(Grid grid, int node) {
+        return node < linesA ? grid.getLineStart(typeA, node) : grid.getLineStart(typeB, node - linesA);
+    }
+    
+    /**
+     * Nächster Nachbar des Knotens im Restgraphen ab callPos[depth], oder -1.
+     */
+    private int nextNeighbour(Grid grid, int node, int depth) {
+        if (node < linesA) {
+            int end = grid.getLineStart(typeA, node) + grid.getLineLength(typeA, node);
+            while (callPos[depth] < end) {
+                int pos = callPos[depth]++;
+                int row = grid.getCellRow(typeA, node, pos);
+                int col = grid.getCellCol(typeA, node, pos);
+                if (!grid.isAssigned(row, col) && !hasFlow(node, pos)) {
+                    return linesA + grid.getLineIndex(typeB, row, col);
+                }
+            }
+        } else {
+            int b = node - linesA;
+            int end = grid.getLineStart(typeB, b) + grid.getLineLength(typeB, b);
+            while (callPos[depth] < end) {
+                int pos = callPos[depth]++;
+                int row = grid.getCellRow(typeB, b, pos);
+                int col = grid.getCellCol(typeB, b, pos);
+                int a = grid.getLineIndex(typeA, row, col);
+                if (hasFlow(a, posOnA(row, col))) {
+                    return a;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Streicht den Fluss über Zellen der Linie, die inzwischen zugewiesen sind.
+     */
+    private void releaseAssigned(Grid grid, int a) {
+        if (flowA[a] == 0) {
+            return;
+        }
+        for (int w = 0; w < words; w++) {
+            long stale = flow[a * words + w] & ~grid.getUnassignedMask(typeA, a, w);
+            if (stale == 0) {
+                continue;
+            }
+            flow[a * words + w] &= ~stale;
+            flowA[a] -= Long.bitCount(stale);
+            while (stale != 0) {
+                int pos = (w << 6) + Long.numberOfTrailingZeros(stale);
+                stale &= stale - 1;
+                flowB[lineB(grid, a, pos)]--;
+            }
+        }
+    }
+    
+    /**
+     * Streicht eine Einheit Fluss auf Linie A (für gesunkenen Bedarf).
+     */
+    private void cancelOnA(Grid grid, int a) {
+        for (int w = 0; w < words; w++) {
+            long bits = flow[a * words + w];
+            if (bits != 0) {
+                int pos = (w << 6) + Long.numberOfTrailingZeros(bits);
+                setFlow(grid, a, pos, false);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Streicht eine Einheit Fluss auf Linie B (für gesunkenen Bedarf).
+     */
+    private void cancelOnB(Grid grid, int b) {
+        int start = grid.getLineStart(typeB, b);
+        int end = start + grid.getLineLength(typeB, b);
+        for (int p = start; p < end; p++) {
+            int row = grid.getCellRow(typeB, b, p);
+            int col = grid.getCellCol(typeB, b, p);
+            int a = grid.getLineIndex(typeA, row, col);
+            int pos = posOnA(row, col);
+            if (hasFlow(a, pos)) {
+                setFlow(grid, a, pos, false);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Belegt freie Zellen, deren beide Linien noch Bedarf haben, direkt mit
+     * Fluss. Gibt die Anzahl der neuen Einheiten zurück.
+     */
+    private int fillGreedy(Grid grid) {
+        int added = 0;
+        for (int a = 0; a < linesA; a++) {
+            int need = remaining(grid, typeA, a);
+            for (int w = 0; w < words && flowA[a] < need; w++) {
+                long free = grid.getUnassignedMask(typeA, a, w) & ~flow[a * words + w];
+                while (free != 0 && flowA[a] < need) {
+                    int pos = (w << 6) + Long.numberOfTrailingZeros(free);
+                    free &= free - 1;
+                    int b = lineB(grid, a, pos);
+                    if (flowB[b] < remaining(grid, typeB, b)) {
+                        setFlow(grid, a, pos, true);
+                        added++;
+                    }
+                }
+            }
+        }
+        return added;
+    }
+    
+    /**
+     * Sucht einen augmentierenden Pfad von einer Linie A mit Restbedarf zu
+     * einer Linie B mit Restbedarf und erhöht den Fluss um eine Einheit.
+     * Gibt false zurück, wenn es keinen gibt (der Fluss ist maximal).
+     */
+    private boolean augment(Grid grid) {
+        visit++;
+        int head = 0;
+        int tail = 0;
+        for (int a = 0; a < linesA; a++) {
+            if (flowA[a] < remaining(grid, typeA, a)) {
+                visitedA[a] = visit;
+                parentA[a] = -1;
+                queue[tail++] = a;
+            }
+        }
+        
+        while (head < tail) {
+            int a = queue[head++];
+            for (int w = 0; w < words; w++) {
+                long free = grid.getUnassignedMask(typeA, a, w) & ~flow[a * words + w];
+                while (free != 0) {
+                    int pos = (w << 6) + Long.numberOfTrailingZeros(free);
+                    free &= free - 1;
+                    int b = lineB(grid, a, pos);
+                    if (visitedB[b] == visit) {
+                        continue;
+                    }
+                    visitedB[b] = visit;
+                    parentB[b] = a;
+                    if (flowB[b] < remaining(grid, typeB, b)) {
+                        apply(grid, b);
+                        return true;
+                    }
+                    
+                    // Über eine Zelle mit Fluss auf B weiter zu einer anderen Linie A
+                    int start = grid.getLineStart(typeB, b);
+                    int end = start + grid.getLineLength(typeB, b);
+                    for (int p = start; p < end; p++) {
+                        int row = grid.getCellRow(typeB, b, p);
+                        int col = grid.getCellCol(typeB, b, p);
+                        int next = grid.getLineIndex(typeA, row, col);
+                        if (visitedA[next] != visit && hasFlow(next, posOnA(row, col))) {
+                            visitedA[next] = visit;
+                            parentA[next] = b;
+                            queue[tail++] = next;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Kehrt den gefundenen Pfad um, der bei Linie B endet: Kanten von A nach B
+     * bekommen Fluss, die Rückwege von B nach A verlieren ihn.
+     */
+    private void apply(Grid grid, int b) {
+        while (true) {
+            int a = parentB[b];
+            int cell = grid.getCrossing(typeA, a, typeB, b);
+            setFlow(grid, a, posOnA(cell / size, cell % size), true);
+            int previous = parentA[a];
+            if (previous == -1) {
+                return;
+            }
+            cell = grid.getCrossing(typeA, a, typeB, previous);
+            setFlow(grid, a, posOnA(cell / size, cell % size), false);
+            b = previous;
+        }
+    }
+    
+    private void setFlow(Grid grid, int a, int pos, boolean on) {
+        int b = lineB(grid, a, pos);
+        int delta = on ? 1 : -1;
+        if (on) {
+            flow[a * words + (pos >>> 6)] |= 1L << pos;
+        } else {
+            flow[a * words + (pos >>> 6)] &= ~(1L << pos);
+        }
+        flowA[a] += delta;
+        flowB[b] += delta;
+    }
+    
+    private boolean hasFlow(int a, int pos) {
+        return (flow[a * words + (pos >>> 6)] & (1L << pos)) != 0;
+    }
+    
+    /**
+     * Bitposition einer Zelle auf ihrer Linie A (siehe Grid).
+     */
+    private int posOnA(int row, int col) {
+        return typeA == Grid.ROW ? col : row;
+    }
+    
+    private int lineB(Grid grid, int a, int pos) {
+        return grid.getLineIndex(typeB, grid.getCellRow(typeA, a, pos), grid.getCellCol(typeA, a, pos));
+    }
+    
+    private int remaining(Grid grid, int type, int index) {
+        return constraints.getLineSum(type, index) - grid.getLineSum(type, index);
+    }
+}
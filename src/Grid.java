@@ -1,18 +1,74 @@
+import java.util.Arrays;
+
 /**
  * Repräsentiert das n×n Raster für den Bibertomographen.
  * Jede Zelle kann den Wert -1 (nicht zugewiesen), 0 (leer) oder 1 (gefüllt) haben.
+ *
+ * Intern wird jede Linie (Zeile, Spalte, beide Diagonalrichtungen) als Bitmaske
+ * in long-Wörtern gespeichert: eine "gefüllt"-Maske und eine "zugewiesen"-Maske.
+ * Damit lassen sich alle freien Zellen einer Linie wortweise finden.
  */
 public class Grid {
+    // Linientypen
+    public static final int ROW = 0;
+    public static final int COL = 1;
+    public static final int DIAG_DOWN = 2; // Index k = row + col
+    public static final int DIAG_UP = 3;   // Index k = col - row + (size-1)
+    public static final int LINE_TYPES = 4;
+    
     private final int size;
-    private final int[][] cells;
+    private final int words; // long-Wörter pro Linie
+    
+    // Bitmasken pro Linientyp, Linie i belegt die Wörter [i*words, (i+1)*words).
+    // Bitposition ist bei Zeilen die Spalte, bei allen anderen Linien die Zeile.
+    // Positionen außerhalb der Linie sind als zugewiesen markiert.
+    private final long[][] filled;
+    private final long[][] assigned;
+    
+    // Zähler pro Linie, werden von set() in O(1) aktuell gehalten
+    private final int[][] filledCount;
+    private final int[][] unassignedCount;
+    private int assignedCount;
+    
+    // Zobrist-Hash des Restproblems, ebenfalls in set() aktualisiert
+    private long hash;
     
     public Grid(int size) {
+        this(size, true);
+    }
+    
+    private Grid(int size, boolean init) {
         this.size = size;
-        this.cells = new int[size][size];
+        this.words = (size + 63) >>> 6;
+        this.filled = new long[LINE_TYPES][];
+        this.assigned = new long[LINE_TYPES][];
+        this.filledCount = new int[LINE_TYPES][];
+        this.unassignedCount = new int[LINE_TYPES][];
+        for (int t = 0; t < LINE_TYPES; t++) {
+            int lines = getLineCount(t);
+            filled[t] = new long[lines * words];
+            assigned[t] = new long[lines * words];
+            filledCount[t] = new int[lines];
+            unassignedCount[t] = new int[lines];
+        }
+        
+        if (!init) {
+            return; // Inhalt wird von copy() überschrieben
+        }
+        
         // Initialisiere alle Zellen als nicht zugewiesen
+        for (int t = 0; t < LINE_TYPES; t++) {
+            Arrays.fill(assigned[t], -1L);
+            for (int k = 0; k < unassignedCount[t].length; k++) {
+                unassignedCount[t][k] = getLineLength(t, k);
+            }
+        }
         for (int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
-                cells[i][j] = -1;
+                clearBit(assigned[ROW], i, j);
+                clearBit(assigned[COL], j, i);
+                clearBit(assigned[DIAG_DOWN], i + j, i);
+                clearBit(assigned[DIAG_UP], j - i + (size - 1), i);
             }
         }
     }
@@ -21,10 +77,15 @@ public class Grid {
      * Kopiert das Grid (für Backtracking).
      */
     public Grid copy() {
-        Grid copy = new Grid(size);
-        for (int i = 0; i < size; i++) {
-            System.arraycopy(cells[i], 0, copy.cells[i], 0, size);
+        Grid copy = new Grid(size, false);
+        for (int t = 0; t < LINE_TYPES; t++) {
+            System.arraycopy(filled[t], 0, copy.filled[t], 0, filled[t].length);
+            System.arraycopy(assigned[t], 0, copy.assigned[t], 0, assigned[t].length);
+            System.arraycopy(filledCount[t], 0, copy.filledCount[t], 0, filledCount[t].length);
+            System.arraycopy(unassignedCount[t], 0, copy.unassignedCount[t], 0, unassignedCount[t].length);
         }
+        copy.assignedCount = assignedCount;
+        copy.hash = hash;
         return copy;
     }
     
@@ -33,82 +94,151 @@ public class Grid {
     }
     
     public int get(int row, int col) {
-        return cells[row][col];
+        int word = row * words + (col >>> 6);
+        long bit = 1L << col;
+        if ((assigned[ROW][word] & bit) == 0) {
+            return -1;
+        }
+        return (filled[ROW][word] & bit) != 0 ? 1 : 0;
     }
     
+    /**
+     * Setzt eine Zelle und aktualisiert die Bitmasken und Linienzähler.
+     * Der Wert -1 macht eine Zuweisung wieder rückgängig.
+     */
     public void set(int row, int col, int value) {
-        cells[row][col] = value;
+        int old = get(row, col);
+        if (old == value) {
+            return;
+        }
+        
+        int diagDownK = row + col;
+        int diagUpK = col - row + (size - 1);
+        updateBit(ROW, row, col, value);
+        updateBit(COL, col, row, value);
+        updateBit(DIAG_DOWN, diagDownK, row, value);
+        updateBit(DIAG_UP, diagUpK, row, value);
+        
+        int filledDelta = (value == 1 ? 1 : 0) - (old == 1 ? 1 : 0);
+        int unassignedDelta = (value == -1 ? 1 : 0) - (old == -1 ? 1 : 0);
+        
+        filledCount[ROW][row] += filledDelta;
+        filledCount[COL][col] += filledDelta;
+        filledCount[DIAG_DOWN][diagDownK] += filledDelta;
+        filledCount[DIAG_UP][diagUpK] += filledDelta;
+        
+        unassignedCount[ROW][row] += unassignedDelta;
+        unassignedCount[COL][col] += unassignedDelta;
+        unassignedCount[DIAG_DOWN][diagDownK] += unassignedDelta;
+        unassignedCount[DIAG_UP][diagUpK] += unassignedDelta;
+        assignedCount -= unassignedDelta;
+        
+        if (unassignedDelta != 0) {
+            hash ^= zobrist(row * size + col);
+        }
+        if (filledDelta != 0) {
+            updateHash(ROW, row, filledDelta);
+            updateHash(COL, col, filledDelta);
+            updateHash(DIAG_DOWN, diagDownK, filledDelta);
+            updateHash(DIAG_UP, diagUpK, filledDelta);
+        }
+    }
+    
+    /**
+     * Zobrist-Hash des Restproblems: XOR eines festen Zufallswerts für jede
+     * zugewiesene Zelle und für jede Linie mit ihrer Anzahl gefüllter
+     * Zellen. Welche Zellen offen sind und wie viele jede Linie noch
+     * braucht, bestimmt alle Vervollständigungen des Grids. Zwei Belegungen,
+     * die sich nur durch Tausch gefüllter Zellen mit gleichen Liniensummen
+     * unterscheiden (z.B. ein Rechteck 10/01 gegen 01/10), haben deshalb
+     * denselben Hash, unabhängig von der Reihenfolge der Zuweisungen.
+     */
+    public long getHash() {
+        return hash;
+    }
+    
+    private void updateHash(int type, int index, int filledDelta) {
+        int count = filledCount[type][index];
+        hash ^= lineKey(type, index, count - filledDelta) ^ lineKey(type, index, count);
+    }
+    
+    /**
+     * Zufallswert für eine Linie mit count gefüllten Zellen, 0 für leere
+     * Linien (damit das leere Grid den Hash 0 hat).
+     */
+    static long lineKey(int type, int index, int count) {
+        return count == 0 ? 0 : zobrist((1L << 62) | ((long) type << 48) | ((long) index << 24) | count);
+    }
+    
+    /**
+     * Zufallswert zu einem Schlüssel, berechnet mit SplitMix64 statt aus
+     * einer Tabelle, damit jede Rastergröße ohne Vorbereitung funktioniert.
+     */
+    static long zobrist(long key) {
+        long z = (key + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    private void updateBit(int type, int index, int pos, int value) {
+        if (value == -1) {
+            clearBit(assigned[type], index, pos);
+        } else {
+            setBit(assigned[type], index, pos);
+        }
+        if (value == 1) {
+            setBit(filled[type], index, pos);
+        } else {
+            clearBit(filled[type], index, pos);
+        }
+    }
+    
+    private void setBit(long[] masks, int index, int pos) {
+        masks[index * words + (pos >>> 6)] |= 1L << pos;
+    }
+    
+    private void clearBit(long[] masks, int index, int pos) {
+        masks[index * words + (pos >>> 6)] &= ~(1L << pos);
     }
     
     public boolean isAssigned(int row, int col) {
-        return cells[row][col] != -1;
+        return (assigned[ROW][row * words + (col >>> 6)] & (1L << col)) != 0;
     }
     
     /**
      * Gibt die Anzahl der zugewiesenen Zellen zurück.
      */
     public int countAssigned() {
-        int count = 0;
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (cells[i][j] != -1) {
-                    count++;
-                }
-            }
-        }
-        return count;
+        return assignedCount;
     }
     
     /**
      * Gibt die Summe der gefüllten Zellen in einer Zeile zurück (nur zugewiesene).
      */
     public int getRowSum(int row) {
-        int sum = 0;
-        for (int j = 0; j < size; j++) {
-            if (cells[row][j] == 1) {
-                sum++;
-            }
-        }
-        return sum;
+        return filledCount[ROW][row];
     }
     
     /**
      * Gibt die Anzahl der nicht zugewiesenen Zellen in einer Zeile zurück.
      */
     public int getRowUnassigned(int row) {
-        int count = 0;
-        for (int j = 0; j < size; j++) {
-            if (cells[row][j] == -1) {
-                count++;
-            }
-        }
-        return count;
+        return unassignedCount[ROW][row];
     }
     
     /**
      * Gibt die Summe der gefüllten Zellen in einer Spalte zurück.
      */
     public int getColSum(int col) {
-        int sum = 0;
-        for (int i = 0; i < size; i++) {
-            if (cells[i][col] == 1) {
-                sum++;
-            }
-        }
-        return sum;
+        return filledCount[COL][col];
     }
     
     /**
      * Gibt die Anzahl der nicht zugewiesenen Zellen in einer Spalte zurück.
      */
     public int getColUnassigned(int col) {
-        int count = 0;
-        for (int i = 0; i < size; i++) {
-            if (cells[i][col] == -1) {
-                count++;
-            }
-        }
-        return count;
+        return unassignedCount[COL][col];
     }
     
     /**
@@ -116,28 +246,14 @@ public class Grid {
      * Index k = row + col, Bereich: 0 bis 2*(size-1)
      */
     public int getDiagDownSum(int k) {
-        int sum = 0;
-        for (int i = 0; i < size; i++) {
-            int j = k - i;
-            if (j >= 0 && j < size && cells[i][j] == 1) {
-                sum++;
-            }
-        }
-        return sum;
+        return filledCount[DIAG_DOWN][k];
     }
     
     /**
      * Gibt die Anzahl der nicht zugewiesenen Zellen in einer Hauptdiagonale zurück.
      */
     public int getDiagDownUnassigned(int k) {
-        int count = 0;
-        for (int i = 0; i < size; i++) {
-            int j = k - i;
-            if (j >= 0 && j < size && cells[i][j] == -1) {
-                count++;
-            }
-        }
-        return count;
+        return unassignedCount[DIAG_DOWN][k];
     }
     
     /**
@@ -145,28 +261,134 @@ public class Grid {
      * Index k = col - row + (size-1), Bereich: 0 bis 2*(size-1)
      */
     public int getDiagUpSum(int k) {
-        int sum = 0;
-        for (int i = 0; i < size; i++) {
-            int j = k - (size - 1) + i;
-            if (j >= 0 && j < size && cells[i][j] == 1) {
-                sum++;
-            }
-        }
-        return sum;
+        return filledCount[DIAG_UP][k];
     }
     
     /**
      * Gibt die Anzahl der nicht zugewiesenen Zellen in einer Nebendiagonale zurück.
      */
     public int getDiagUpUnassigned(int k) {
-        int count = 0;
-        for (int i = 0; i < size; i++) {
-            int j = k - (size - 1) + i;
-            if (j >= 0 && j < size && cells[i][j] == -1) {
-                count++;
-            }
+        return unassignedCount[DIAG_UP][k];
+    }
+    
+    /**
+     * Gibt die Summe der gefüllten Zellen einer beliebigen Linie zurück.
+     */
+    public int getLineSum(int type, int index) {
+        return filledCount[type][index];
+    }
+    
+    /**
+     * Gibt die Anzahl der nicht zugewiesenen Zellen einer beliebigen Linie zurück.
+     */
+    public int getLineUnassigned(int type, int index) {
+        return unassignedCount[type][index];
+    }
+    
+    /**
+     * Anzahl der long-Wörter pro Linienmaske.
+     */
+    public int getWordsPerLine() {
+        return words;
+    }
+    
+    /**
+     * Gibt ein Wort der Maske aller nicht zugewiesenen Zellen einer Linie zurück.
+     * Gesetzte Bits sind Positionen (siehe getCellRow/getCellCol), die noch frei sind.
+     */
+    public long getUnassignedMask(int type, int index, int word) {
+        return ~assigned[type][index * words + word];
+    }
+    
+    /**
+     * Gibt ein Wort der Maske aller gefüllten Zellen einer Linie zurück.
+     */
+    public long getFilledMask(int type, int index, int word) {
+        return filled[type][index * words + word];
+    }
+    
+    /**
+     * Anzahl der Linien eines Typs.
+     */
+    public int getLineCount(int type) {
+        return type == ROW || type == COL ? size : 2 * size - 1;
+    }
+    
+    /**
+     * Anzahl der Zellen einer Linie.
+     */
+    public int getLineLength(int type, int index) {
+        return type == ROW || type == COL ? size : size - Math.abs(index - (size - 1));
+    }
+    
+    /**
+     * Erste gültige Bitposition einer Linie; die Positionen der Linie sind
+     * getLineStart(...) bis getLineStart(...) + getLineLength(...) - 1.
+     */
+    public int getLineStart(int type, int index) {
+        switch (type) {
+            case DIAG_DOWN: return Math.max(0, index - (size - 1));
+            case DIAG_UP: return Math.max(0, (size - 1) - index);
+            default: return 0;
+        }
+    }
+    
+    /**
+     * Index der Linie eines Typs, die durch die Zelle (row, col) läuft.
+     */
+    public int getLineIndex(int type, int row, int col) {
+        switch (type) {
+            case ROW: return row;
+            case COL: return col;
+            case DIAG_DOWN: return row + col;
+            default: return col - row + (size - 1);
+        }
+    }
+    
+    /**
+     * Schnittzelle zweier Linien verschiedenen Typs als Zellindex
+     * (row * size + col), oder -1, wenn sie sich nicht im Raster schneiden.
+     */
+    public int getCrossing(int typeA, int indexA, int typeB, int indexB) {
+        // Jede Linie als Gleichung p*row + q*col = s lösen
+        int pA = typeA == COL ? 0 : typeA == DIAG_UP ? -1 : 1;
+        int qA = typeA == ROW ? 0 : 1;
+        int sA = typeA == DIAG_UP ? indexA - (size - 1) : indexA;
+        int pB = typeB == COL ? 0 : typeB == DIAG_UP ? -1 : 1;
+        int qB = typeB == ROW ? 0 : 1;
+        int sB = typeB == DIAG_UP ? indexB - (size - 1) : indexB;
+        
+        int det = pA * qB - pB * qA;
+        int rowTimesDet = sA * qB - sB * qA;
+        int colTimesDet = pA * sB - pB * sA;
+        if (rowTimesDet % det != 0 || colTimesDet % det != 0) {
+            return -1; // Diagonalen unterschiedlicher Parität
+        }
+        int row = rowTimesDet / det;
+        int col = colTimesDet / det;
+        if (row < 0 || row >= size || col < 0 || col >= size) {
+            return -1;
+        }
+        return row * size + col;
+    }
+    
+    /**
+     * Zeile der Zelle an Bitposition pos auf einer Linie.
+     */
+    public int getCellRow(int type, int index, int pos) {
+        return type == ROW ? index : pos;
+    }
+    
+    /**
+     * Spalte der Zelle an Bitposition pos auf einer Linie.
+     */
+    public int getCellCol(int type, int index, int pos) {
+        switch (type) {
+            case ROW: return pos;
+            case COL: return index;
+            case DIAG_DOWN: return index - pos;
+            default: return index - (size - 1) + pos;
         }
-        return count;
     }
     
     /**
@@ -177,9 +399,10 @@ public class Grid {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
-                if (cells[i][j] == 1) {
+                int value = get(i, j);
+                if (value == 1) {
                     sb.append('#');
-                } else if (cells[i][j] == 0) {
+                } else if (value == 0) {
                     sb.append('.');
                 } else {
                     sb.append('?');
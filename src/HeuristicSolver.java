@@ -1,5 +1,11 @@
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * Heuristik-gesteuerter Backtracking-Solver für das Bibertomograph-Problem.
@@ -8,106 +14,790 @@ import java.util.List;
  * - Heatmap-basierte Zellauswahl (Most Constrained + Confidence)
  * - Constraint Propagation (erzwungene Zellen erkennen)
  * - Forward Checking (unmögliche Zustände früh erkennen)
+ * 
+ * Optional kann die Suche parallel laufen: die obersten Ebenen des
+ * Suchbaums werden dann als Tasks auf einen ForkJoinPool verteilt.
+ * 
+ * Eine Suche lässt sich durch Zeitlimit, Knotenbudget, cancel(), ein
+ * CancellationToken oder Thread.interrupt() des aufrufenden Threads
+ * begrenzen. Danach gibt getStatus() den Grund an, die bis dahin gefundenen
+ * Lösungen bleiben gültig und getCertainCells() liefert die Zellen, die
+ * allein durch Propagation feststehen.
  */
-public class HeuristicSolver {
+public class HeuristicSolver implements TomographSolver {
+    
+    // Ab dieser Rastergröße wird die nächste Zelle aus einem Heap gewählt
+    // statt alle Zellen zu durchlaufen. Darunter ist der Durchlauf schneller,
+    // weil die Propagation pro Knoten zu viele Linien ändert (gemessen mit
+    // TomographGenerator, Übergang zwischen n=140 und n=200). Mit Probing
+    // immer, die Kandidaten kommen dann aus demselben Heap.
+    private static final int HEAP_SELECTION_MIN_SIZE = 160;
+    
+    // Limits werden nur alle so viele Knoten pro Thread geprüft
+    static final int LIMIT_CHECK_INTERVAL = 256;
+    
+    // Speichergrenze der Tabelle für die Lösungszählung in MB, wenn
+    // setCountCache() keine setzt
+    private static final int COUNT_CACHE_MEGABYTES = 64;
+    
     private final Constraints constraints;
     private final double[][] heatmap;
     private final int size;
-    private List<Grid> solutions;
+    private volatile SolutionCollector solutions;
+    private volatile CancellationToken token;
+    private volatile Status stopReason; // gesetzt, sobald ein Limit greift
+    private Status status;
+    private volatile Grid certain;
+    private long timeLimit;  // Millisekunden, 0 = unbegrenzt
+    private long nodeLimit;  // 0 = unbegrenzt
+    private long deadline;   // System.nanoTime() beim Ablauf des Zeitlimits
+    private Thread caller;
     private int maxSolutions;
-    private long nodeCount;
+    private final LongAdder nodeCount;
+    private boolean useTrail;
+    private boolean pairPropagation;
+    private boolean flowCheck;
+    private int flowInterval;
+    private final Symmetry symmetry;
+    private boolean symmetryBreaking;
+    private boolean backjumping;
+    private boolean decomposition;
+    private boolean probing;
+    private int probeCells;  // Kandidaten pro Knoten
+    private int countMegabytes;  // Speichergrenze des Zähl-Caches
+    private int nogoodMegabytes; // Speichergrenze der Nogood-Tabelle, 0 = aus
+    private boolean useNogoods;           // für die laufende Suche
+    private volatile NogoodTable nogoods; // erst beim ersten Eintrag angelegt
+    private int parallelism;
+    private int splitDepth;
+    private SolverStats stats; // null = keine Messung
     
     public HeuristicSolver(Constraints constraints) {
         this.constraints = constraints;
         this.size = constraints.getSize();
         this.heatmap = constraints.computeHeatmap();
-        this.solutions = new ArrayList<>();
+        this.solutions = new SolutionCollector(0);
         this.maxSolutions = 100; // Limit für Lösungssuche
-        this.nodeCount = 0;
+        this.nodeCount = new LongAdder();
+        this.useTrail = true;
+        this.pairPropagation = true;
+        this.flowCheck = true;
+        this.flowInterval = 4;
+        this.symmetry = Symmetry.detect(constraints);
+        this.symmetryBreaking = true;
+        this.backjumping = false;
+        this.decomposition = true;
+        this.probing = false;
+        this.probeCells = 16;
+        this.countMegabytes = COUNT_CACHE_MEGABYTES;
+        this.parallelism = 1;
+        this.token = new CancellationToken();
     }
     
     /**
      * Setzt das Maximum der zu findenden Lösungen.
      */
+    @Override
     public void setMaxSolutions(int max) {
         this.maxSolutions = max;
     }
     
+    /**
+     * Schaltet zwischen Trail-Modus (ein Grid, Zuweisungen werden beim
+     * Backtracking rückgängig gemacht) und Kopier-Modus (Grid.copy() pro Zweig) um.
+     */
+    public void setUseTrail(boolean useTrail) {
+        this.useTrail = useTrail;
+    }
+    
+    /**
+     * Schaltet die Paar-Stufe der Propagation ein oder aus. Liegt eine freie
+     * Zelle auf zwei Linien, auf denen ein Wert alle übrigen freien Zellen
+     * erzwingt, prüft sie diese erzwungenen Zellen vorab gegen die Summen der
+     * kreuzenden Linien; passt es nicht, bekommt die Zelle den anderen Wert.
+     * Standardmäßig an.
+     */
+    public void setPairPropagation(boolean pairPropagation) {
+        this.pairPropagation = pairPropagation;
+    }
+    
+    /**
+     * Schaltet die Flussprüfung ein oder aus: nach der Propagation wird mit
+     * einem maximalen Fluss geprüft, ob Zeilen und Spalten sowie Haupt- und
+     * Nebendiagonalen mit den freien Zellen noch gemeinsam erfüllbar sind,
+     * und Zellen gesetzt, die in jedem solchen Fluss gleich belegt sind
+     * (siehe FlowCheck). Standardmäßig an.
+     */
+    public void setFlowCheck(boolean flowCheck) {
+        this.flowCheck = flowCheck;
+    }
+    
+    /**
+     * Die Flussprüfung läuft nur bei jeder interval-ten Propagation einer
+     * Suche, immer aber bei der ersten. Ein Fluss kostet etwa so viel wie
+     * die übrige Propagation eines Knotens, spart aber nur einen Teil der
+     * Knoten ein. Standard ist 4, 1 prüft an jedem Knoten.
+     */
+    public void setFlowInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Intervall muss positiv sein: " + interval);
+        }
+        this.flowInterval = interval;
+    }
+    
+    /**
+     * Schaltet Probing (Singleton-Konsistenz) ein oder aus, nur im
+     * Trail-Modus. Vor der Verzweigung werden für die Kandidaten (siehe
+     * setProbeCells) beide Werte probeweise gesetzt und propagiert; scheitert
+     * ein Wert, wird der andere gesetzt, scheitern beide, ist der Knoten ohne
+     * Lösung (siehe Prober). Standardmäßig aus. Lohnt sich bei schweren
+     * Instanzen mit vielen Knoten, leichte werden eher langsamer.
+     */
+    public void setProbing(boolean probing) {
+        this.probing = probing;
+    }
+    
+    /**
+     * Anzahl der Kandidaten pro Knoten beim Probing: die offenen Zellen mit
+     * dem höchsten Score der Zellauswahl (computeCellScore). Standard ist 16.
+     */
+    public void setProbeCells(int cells) {
+        if (cells < 1) {
+            throw new IllegalArgumentException("Anzahl muss positiv sein: " + cells);
+        }
+        this.probeCells = cells;
+    }
+    
+    /**
+     * Schaltet die Symmetriebrechung ein oder aus. Bleiben die Constraints
+     * unter Drehungen oder Spiegelungen gleich (siehe Symmetry), sucht der
+     * Solver nur die kanonische Lösung jeder Bahn und ergänzt die übrigen
+     * beim Sammeln; Lösungen, Backbone und feste Zellen sind dieselben wie
+     * ohne Brechung, nur die Reihenfolge der Lösungen ändert sich.
+     * Standardmäßig an, ohne Symmetrie wirkungslos.
+     */
+    public void setSymmetryBreaking(boolean symmetryBreaking) {
+        this.symmetryBreaking = symmetryBreaking;
+    }
+    
+    /**
+     * Schaltet konfliktgesteuertes Backjumping ein oder aus (nur im
+     * Trail-Modus). Bei einem Konflikt springt die Suche direkt zur jüngsten
+     * beteiligten Entscheidung zurück und lernt daraus ein Nogood (siehe
+     * Backjumping). Standardmäßig aus. Spart Knoten bei vielen Konflikten,
+     * die Buchführung kostet aber pro Knoten mehr Zeit.
+     */
+    public void setBackjumping(boolean backjumping) {
+        this.backjumping = backjumping;
+    }
+    
+    /**
+     * Schaltet die Zerlegung in unabhängige Komponenten ein oder aus. Die
+     * offenen Zellen werden in Komponenten zerlegt, die keine Linie teilen
+     * (siehe Components), und jede wird für sich gesucht: in solve() einmal
+     * nach der initialen Propagation, in solveBackbone() vor jeder
+     * Teilsuche. Mit aktiver Symmetriebrechung bleibt sie aus.
+     * Standardmäßig an; zerfällt nichts, kostet sie nur ein Union-Find pro
+     * Suche.
+     */
+    public void setDecomposition(boolean decomposition) {
+        this.decomposition = decomposition;
+    }
+    
+    /**
+     * Speichergrenze des Caches der Lösungszählung in MB (0 = aus,
+     * Standard COUNT_CACHE_MEGABYTES), siehe countSolutions(). Mehr lohnt
+     * sich nur, wenn beim Zählen viele Teile wiederkehren.
+     */
+    public void setCountCache(int megabytes) {
+        if (megabytes < 0) {
+            throw new IllegalArgumentException("Speichergrenze darf nicht negativ sein: " + megabytes);
+        }
+        this.countMegabytes = megabytes;
+    }
+    
+    /**
+     * Speichergrenze der Nogood-Tabelle in MB (0 = aus, Standard). Die
+     * Suche merkt sich Teilbäume ohne Lösung unter dem Zobrist-Hash des
+     * Restproblems (Grid.getHash(), verglichen wird der ganze Schlüssel)
+     * und überspringt sie, wenn dasselbe Restproblem wieder erreicht wird.
+     * Nur ohne Symmetriebrechung und nicht in Suchen auf einer Komponente.
+     * Lohnt sich selten, weil gleiche Restprobleme meist in Teilbäumen mit
+     * Lösungen entstehen; die Zähler in SolverStats zeigen, ob doch.
+     */
+    public void setNogoodCache(int megabytes) {
+        if (megabytes < 0) {
+            throw new IllegalArgumentException("Speichergrenze darf nicht negativ sein: " + megabytes);
+        }
+        this.nogoodMegabytes = megabytes;
+    }
+    
+    /**
+     * Die Symmetrien der Constraints (ohne Identität).
+     */
+    public Symmetry getSymmetry() {
+        return symmetry;
+    }
+    
+    /**
+     * Symmetrie, die die Suche bricht, oder null.
+     */
+    private Symmetry activeSymmetry() {
+        return symmetryBreaking && symmetry.getCount() > 0 ? symmetry : null;
+    }
+    
+    /**
+     * Setzt die Anzahl der Threads für die Suche (1 = sequentiell).
+     * Bis zu einer Tiefe von etwa log2(Threads) + 5 Entscheidungen wird jeder
+     * Zweig ein eigener ForkJoin-Task, darunter wird sequentiell gesucht.
+     */
+    @Override
+    public void setParallelism(int threads) {
+        this.parallelism = Math.max(1, threads);
+        this.splitDepth = 32 - Integer.numberOfLeadingZeros(parallelism) + 4;
+    }
+    
+    /**
+     * Begrenzt jede folgende Suche auf die angegebene Laufzeit in Millisekunden,
+     * gemessen ab dem Aufruf von solve() bzw. solveBackbone() (0 = unbegrenzt).
+     */
+    @Override
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis;
+    }
+    
+    /**
+     * Begrenzt die Anzahl der durchsuchten Knoten (0 = unbegrenzt). Weil die
+     * Limits nur alle 256 Knoten geprüft werden, kann jeder Thread das Budget
+     * um bis zu 256 Knoten überschreiten.
+     */
+    @Override
+    public void setNodeLimit(long nodes) {
+        this.nodeLimit = nodes;
+    }
+    
+    /**
+     * Setzt ein Token, über das die Suche von außen abgebrochen werden kann.
+     * Ein Token kann von mehreren Solvern geteilt werden.
+     */
+    @Override
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+    
+    /**
+     * Setzt ein Objekt, in das der Solver Zähler und Phasenzeiten schreibt
+     * (null schaltet die Messung ab).
+     */
+    @Override
+    public void setStats(SolverStats stats) {
+        this.stats = stats;
+    }
+    
+    @Override
+    public SolverStats getStats() {
+        return stats;
+    }
+    
     /**
      * Löst das Problem und gibt alle gefundenen Lösungen zurück.
+     * Im parallelen Modus sind es dieselben Lösungen in derselben Reihenfolge
+     * wie bei der sequentiellen Suche (auch mit Zerlegung, siehe
+     * setDecomposition).
      */
+    @Override
     public List<Grid> solve() {
-        solutions.clear();
-        nodeCount = 0;
+        run(new SolutionCollector(maxSolutions, null, activeSymmetry()));
+        return solutions.getSolutions();
+    }
+    
+    /**
+     * Löst das Problem und übergibt jede Lösung sofort an den Consumer, ohne
+     * die Lösungen zu speichern. Es werden höchstens maxSolutions Lösungen
+     * geliefert; mit cancel() (auch aus dem Consumer heraus) endet die Suche
+     * früher. Sequentiell kommen die Lösungen in Suchreihenfolge, im parallelen
+     * Modus in der Reihenfolge, in der sie gefunden werden. Der Consumer wird
+     * nie gleichzeitig aufgerufen.
+     */
+    @Override
+    public void solve(Consumer<Grid> consumer) {
+        run(new SolutionCollector(maxSolutions, consumer, activeSymmetry()));
+    }
+    
+    /**
+     * Bricht die laufende Suche ab. Bereits gelieferte Lösungen bleiben
+     * gültig. Das Token bleibt unberührt, spätere Suchen laufen also wieder
+     * normal; eine Suche schon vor ihrem Start abbrechen kann nur das Token
+     * (siehe setCancellationToken).
+     */
+    @Override
+    public void cancel() {
+        stop(Status.CANCELLED);
+    }
+    
+    /**
+     * Gibt zurück, wie die letzte Suche geendet hat.
+     */
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+    
+    /**
+     * Gibt die Zellen zurück, die in jeder Lösung gleich sind, soweit sie
+     * ohne Suche feststehen (nach der initialen Propagation, bei
+     * solveBackbone() zusätzlich alle bis zum Ende bewiesenen Zellen).
+     * Offene Zellen sind -1. Gibt null zurück, wenn die Propagation bereits
+     * einen Widerspruch gefunden hat.
+     */
+    @Override
+    public Grid getCertainCells() {
+        Grid cells = certain;
+        Symmetry active = activeSymmetry();
+        // Die Symmetriebrechung setzt Zellen nur für kanonische Lösungen
+        return cells != null && active != null ? active.combine(cells) : cells;
+    }
+    
+    /**
+     * Beendet die Suche mit dem angegebenen Grund; der erste Grund gilt.
+     */
+    private synchronized void stop(Status reason) {
+        if (stopReason == null) {
+            stopReason = reason;
+        }
+        solutions.close();
+    }
+    
+    /**
+     * Beginnt eine Suche mit collector. Grund und Status werden unter
+     * demselben Monitor wie in stop() zurückgesetzt, bevor der Collector
+     * sichtbar wird: ein cancel() davor trifft noch die alte Suche, eines
+     * danach schließt den neuen Collector und bleibt im Status stehen.
+     */
+    private void startLimits(SolutionCollector collector) {
+        synchronized (this) {
+            stopReason = null;
+            status = null;
+            solutions = collector;
+        }
+        certain = null;
+        caller = Thread.currentThread();
+        useNogoods = nogoodMegabytes > 0 && activeSymmetry() == null;
+        nogoods = null;
+        deadline = System.nanoTime() + timeLimit * 1000000;
+        nodeCount.reset();
+        checkLimits();
+    }
+    
+    /**
+     * Macht collector zum Collector der laufenden Suche; ist sie schon
+     * beendet, wird er gleich geschlossen.
+     */
+    private synchronized void useCollector(SolutionCollector collector) {
+        solutions = collector;
+        if (stopReason != null) {
+            collector.close();
+        }
+    }
+    
+    /**
+     * Prüft Token, Interrupt, Zeitlimit und Knotenbudget und beendet die
+     * Suche, wenn eines davon greift. Gibt true zurück, wenn die Suche
+     * beendet ist.
+     */
+    boolean checkLimits() {
+        if (stopReason != null) {
+            return true;
+        }
+        if (token.isCancelled() || caller.isInterrupted()) {
+            stop(Status.CANCELLED);
+        } else if (timeLimit > 0 && System.nanoTime() - deadline >= 0) {
+            stop(Status.TIMEOUT);
+        } else if (nodeLimit > 0 && nodeCount.sum() >= nodeLimit) {
+            stop(Status.NODE_LIMIT);
+        }
+        return stopReason != null;
+    }
+    
+    private void run(SolutionCollector collector) {
+        startLimits(collector);
         
         Grid grid = new Grid(size);
+        Search search = new Search(new int[0], useTrail);
         
-        // Initiale Propagation
-        if (propagate(grid)) {
-            backtrack(grid);
+        // Initiale Propagation über alle Linien
+        search.queueAll();
+        if (search.propagate(grid)) {
+            certain = grid.copy();
+            List<int[]> parts = decomposition && activeSymmetry() == null ? search.components().split(grid) : List.of();
+            if (parts.size() > 1) {
+                solveParts(search, grid, parts, collector);
+            } else {
+                searchFrom(search, grid, null);
+            }
         }
         
-        return solutions;
+        if (stopReason != null) {
+            status = stopReason;
+        } else if (collector.getCount() >= maxSolutions) {
+            status = Status.SOLUTION_LIMIT;
+        } else {
+            status = Status.COMPLETE;
+        }
     }
     
     /**
-     * Gibt die Anzahl der durchsuchten Knoten zurück.
+     * Durchsucht das (bereits propagierte) Grid von der Wurzel aus und
+     * liefert die Lösungen an solutions, mit parallelism > 1 über einen
+     * ForkJoinPool. scope beschränkt die Suche auf die Zellen einer
+     * Komponente (null = alle Zellen).
      */
-    public long getNodeCount() {
-        return nodeCount;
+    private void searchFrom(Search search, Grid grid, int[] scope) {
+        if (parallelism > 1) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new SearchTask(grid, new int[0], scope));
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            search.setScope(scope);
+            search.backtrack(grid, 0);
+            search.setScope(null);
+        }
     }
     
     /**
-     * Hauptbacktracking-Algorithmus.
+     * Aufzählung, wenn das Restproblem nach der initialen Propagation in
+     * mehrere Komponenten zerfällt (siehe setDecomposition). Jede Komponente
+     * wird für sich mit höchstens maxSolutions Lösungen durchsucht; hat eine
+     * keine, gibt es keine Lösung. Geliefert wird das Produkt, die erste
+     * Komponente als höchste Stelle; der Pfad einer Lösung ist der Index der
+     * Lösung jeder Komponente.
      */
-    private void backtrack(Grid grid) {
-        if (solutions.size() >= maxSolutions) {
-            return;
+    private void solveParts(Search search, Grid grid, List<int[]> parts, SolutionCollector collector) {
+        if (stats != null) {
+            stats.decomposed(parts.size());
+        }
+        List<List<Grid>> found = new ArrayList<>();
+        for (int[] part : parts) {
+            useCollector(new SolutionCollector(maxSolutions));
+            searchFrom(search, grid, part);
+            found.add(solutions.getSolutions());
+            useCollector(collector);
+            if (found.get(found.size() - 1).isEmpty()) {
+                return;
+            }
         }
         
-        nodeCount++;
-        
-        // Wähle nächste Zelle basierend auf Heuristik
-        int[] nextCell = selectNextCell(grid);
-        
-        // Wenn keine unzugewiesene Zelle mehr existiert, prüfe ob Lösung gültig
-        if (nextCell == null) {
-            if (isValidSolution(grid)) {
-                solutions.add(grid.copy());
+        int[] index = new int[parts.size()];
+        int untilCheck = LIMIT_CHECK_INTERVAL;
+        while (!collector.isClosed(index, index.length)) {
+            Grid solution = grid.copy();
+            for (int k = 0; k < index.length; k++) {
+                Grid source = found.get(k).get(index[k]);
+                for (int cell : parts.get(k)) {
+                    solution.set(cell / size, cell % size, source.get(cell / size, cell % size));
+                }
+            }
+            collector.add(index, index.length, solution);
+            
+            // Nächste Kombination, die letzte Komponente zählt am schnellsten
+            int k = index.length - 1;
+            while (k >= 0 && ++index[k] == found.get(k).size()) {
+                index[k--] = 0;
+            }
+            if (k < 0) {
+                break;
+            }
+            if (--untilCheck <= 0) {
+                untilCheck = LIMIT_CHECK_INTERVAL;
+                if (checkLimits()) {
+                    break;
+                }
             }
-            return;
         }
+    }
+    
+    /**
+     * Berechnet die kombinierte Ausgabe ('?' = mehrdeutig) direkt, ohne alle
+     * Lösungen aufzuzählen (Backbone-Berechnung).
+     * 
+     * Zuerst wird eine Lösung gesucht. Danach wird für jede noch offene Zelle
+     * geprüft, ob es eine Lösung mit dem entgegengesetzten Wert gibt. Gibt es
+     * keine, ist die Zelle in allen Lösungen gleich und wird fest gesetzt, was
+     * die folgenden Suchen verkleinert. Gibt es eine, sind alle Zellen, in denen
+     * sich die beiden Lösungen unterscheiden, mehrdeutig und müssen nicht mehr
+     * geprüft werden. Das Ergebnis ist unabhängig von der Anzahl der Lösungen
+     * korrekt. Gibt null zurück, wenn es keine Lösung gibt.
+     * 
+     * Greift ein Limit, werden alle noch nicht geprüften Zellen als '?'
+     * ausgegeben; ob das Ergebnis vollständig ist, zeigt getStatus().
+     * Wird vorher keine Lösung gefunden, ist das Ergebnis null und
+     * getCertainCells() enthält die bis dahin bewiesenen Zellen.
+     */
+    @Override
+    public Grid solveBackbone() {
+        startLimits(new SolutionCollector(1));
         
-        int row = nextCell[0];
-        int col = nextCell[1];
+        Grid grid = new Grid(size);
+        Search search = new Search(new int[0], true);
+        search.queueAll();
+        if (!search.propagate(grid)) {
+            status = Status.COMPLETE;
+            return null;
+        }
+        certain = grid.copy();
         
-        // Bestimme Reihenfolge der Werte basierend auf Heatmap
-        int[] valuesToTry;
-        if (heatmap[row][col] >= 0.5) {
-            valuesToTry = new int[]{1, 0};
-        } else {
-            valuesToTry = new int[]{0, 1};
+        Grid first = findOne(search, grid, null);
+        if (first == null) {
+            status = stopReason != null ? stopReason : Status.COMPLETE;
+            return null;
         }
         
-        for (int value : valuesToTry) {
-            if (solutions.size() >= maxSolutions) {
-                return;
+        boolean[][] ambiguous = new boolean[size][size];
+        Symmetry active = activeSymmetry();
+        if (active != null) {
+            // Die Bilder der ersten Lösung sind ebenfalls Lösungen
+            for (Grid image : active.orbit(first)) {
+                markDifferences(first, image, ambiguous);
             }
-            
-            // Forward Check: Ist dieser Wert überhaupt möglich?
-            if (!isValueFeasible(grid, row, col, value)) {
+            spreadAmbiguity(active, ambiguous);
+        }
+        for (int i = 0; i < size && !checkLimits(); i++) {
+            for (int j = 0; j < size; j++) {
+                if (grid.isAssigned(i, j) || ambiguous[i][j]) {
+                    continue;
+                }
+                
+                // Gibt es eine Lösung mit dem anderen Wert?
+                int value = first.get(i, j);
+                Grid other = null;
+                if (isValueFeasible(grid, i, j, 1 - value)) {
+                    int mark = search.trail.mark();
+                    search.assign(grid, i, j, 1 - value);
+                    if (search.propagate(grid)) {
+                        other = findOne(search, grid, first);
+                    }
+                    search.undo(grid, mark);
+                }
+                
+                if (stopReason != null) {
+                    break; // other == null beweist nichts mehr
+                }
+                if (other == null) {
+                    // Zelle ist in allen Lösungen gleich: fest setzen
+                    search.assign(grid, i, j, value);
+                    search.propagate(grid);
+                } else {
+                    markDifferences(first, other, ambiguous);
+                    if (active != null) {
+                        spreadAmbiguity(active, ambiguous);
+                    }
+                }
+            }
+        }
+        
+        certain = grid.copy();
+        status = stopReason != null ? stopReason : Status.COMPLETE;
+        if (stopReason != null) {
+            markUndecided(grid, ambiguous);
+        }
+        Grid combined = first.copy();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (ambiguous[i][j]) {
+                    combined.set(i, j, -1);
+                }
+            }
+        }
+        // Bisher nur über die kanonischen Lösungen kombiniert
+        return active != null ? active.combine(combined) : combined;
+    }
+    
+    private void markDifferences(Grid first, Grid other, boolean[][] ambiguous) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (other.get(r, c) != first.get(r, c)) {
+                    ambiguous[r][c] = true;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Mit Symmetriebrechung ist eine Zelle mehrdeutig, sobald es eine
+     * Zelle ihrer Bahn ist (siehe Symmetry.combine); solche Zellen müssen
+     * nicht mehr geprüft werden.
+     */
+    private void spreadAmbiguity(Symmetry symmetry, boolean[][] ambiguous) {
+        for (int p = 0; p < size * size; p++) {
+            if (!ambiguous[p / size][p % size]) {
                 continue;
             }
-            
-            // Kopiere Grid und setze Wert
-            Grid newGrid = grid.copy();
-            newGrid.set(row, col, value);
-            
-            // Constraint Propagation
-            if (propagate(newGrid)) {
-                backtrack(newGrid);
+            for (int g = 0; g < symmetry.getCount(); g++) {
+                int q = symmetry.getPreimage(g, p);
+                ambiguous[q / size][q % size] = true;
+            }
+        }
+    }
+    
+    private void markUndecided(Grid grid, boolean[][] ambiguous) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (!grid.isAssigned(r, c)) {
+                    ambiguous[r][c] = true;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Sucht ab dem (bereits propagierten) Grid genau eine Lösung, mit
+     * Zerlegung Komponente für Komponente (die kleinsten zuerst). Passt hint
+     * (eine Lösung des ganzen Problems oder null) auf eine Komponente, wird
+     * sie von dort übernommen statt gesucht. Das Grid wird danach wieder im
+     * Ausgangszustand zurückgegeben.
+     */
+    private Grid findOne(Search search, Grid grid, Grid hint) {
+        if (!decomposition || activeSymmetry() != null) {
+            return findOne(search, grid);
+        }
+        List<int[]> parts = search.components().split(grid);
+        if (parts.size() <= 1) {
+            return findOne(search, grid);
+        }
+        if (stats != null) {
+            stats.decomposed(parts.size());
+        }
+        
+        Grid result = grid.copy();
+        for (int[] part : parts) {
+            Grid source = hint;
+            if (hint == null || !fits(grid, hint, part)) {
+                search.setScope(part);
+                source = findOne(search, grid);
+                search.setScope(null);
+                if (source == null) {
+                    return null;
+                }
+            }
+            for (int cell : part) {
+                result.set(cell / size, cell % size, source.get(cell / size, cell % size));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Prüft, ob die Werte von hint auf den Zellen einer Komponente alle ihre
+     * Linien erfüllen. Die offenen Zellen dieser Linien liegen alle in der
+     * Komponente, die übrigen sind in grid gesetzt.
+     */
+    private boolean fits(Grid grid, Grid hint, int[] part) {
+        int[][] filled = new int[Grid.LINE_TYPES][];
+        for (int type = 0; type < Grid.LINE_TYPES; type++) {
+            filled[type] = new int[grid.getLineCount(type)];
+        }
+        for (int cell : part) {
+            int row = cell / size;
+            int col = cell % size;
+            if (hint.get(row, col) == 1) {
+                for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                    filled[type][grid.getLineIndex(type, row, col)]++;
+                }
+            }
+        }
+        for (int cell : part) {
+            for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                int index = grid.getLineIndex(type, cell / size, cell % size);
+                if (grid.getLineSum(type, index) + filled[type][index] != constraints.getLineSum(type, index)) {
+                    return false;
+                }
             }
         }
+        return true;
+    }
+    
+    /**
+     * Sucht ab dem (bereits propagierten) Grid genau eine Lösung.
+     * Das Grid wird danach wieder im Ausgangszustand zurückgegeben.
+     */
+    private Grid findOne(Search search, Grid grid) {
+        useCollector(new SolutionCollector(1));
+        search.backtrack(grid, 0);
+        List<Grid> found = solutions.getSolutions();
+        return found.isEmpty() ? null : found.get(0);
+    }
+    
+    /**
+     * Zählt alle Lösungen exakt, ohne sie aufzuzählen (#SOL), und für jede
+     * Zelle, in wie vielen Lösungen sie gefüllt ist. maxSolutions gilt hier
+     * nicht; ohne Lösung ist die Anzahl 0.
+     * 
+     * Nach jeder Propagation zerfallen die offenen Zellen in unabhängige
+     * Teile (siehe Components), deren Anzahlen sich multiplizieren; jeder
+     * Teil verzweigt über eine Zelle und wird unter seinem Schlüssel im
+     * Cache gespeichert (siehe setCountCache(), SolutionCounter).
+     * Symmetriebrechung ist dabei aus. Schneller als die Aufzählung nur,
+     * wenn das Restproblem zerfällt oder Teile wiederkehren.
+     * 
+     * Greift ein Limit, ist das Ergebnis eine untere Schranke: es enthält
+     * nur die Lösungen der fertig gezählten Zweige, getStatus() nennt den
+     * Grund. Anteile und kombinierte Ausgabe gelten dann nicht.
+     */
+    public SolutionCount countSolutions() {
+        startLimits(new SolutionCollector(1));
+        
+        int cells = size * size;
+        Grid grid = new Grid(size);
+        Search search = new Search(new int[0], true);
+        search.breaking = null;
+        search.queueAll();
+        if (!search.propagate(grid)) {
+            status = Status.COMPLETE;
+            BigInteger[] none = new BigInteger[cells];
+            Arrays.fill(none, BigInteger.ZERO);
+            return new SolutionCount(size, BigInteger.ZERO, none);
+        }
+        certain = grid.copy();
+        
+        SolutionCounter counter = new SolutionCounter(this, search, grid, countMegabytes, flowCheck, nodeCount, stats);
+        BigInteger[] result = counter.count();
+        if (counter.isComplete()) {
+            status = Status.COMPLETE;
+        } else {
+            status = stopReason != null ? stopReason : Status.CANCELLED;
+        }
+        return new SolutionCount(size, result[0], Arrays.copyOfRange(result, 1, result.length));
+    }
+    
+    /**
+     * Gibt die Anzahl der durchsuchten Knoten zurück.
+     */
+    @Override
+    public long getNodeCount() {
+        return nodeCount.sum();
+    }
+    
+    /**
+     * Führt die initiale Propagation über alle Linien auf dem Grid aus.
+     * Einstiegspunkt für die Microbenchmarks in bench/.
+     */
+    boolean propagateInitial(Grid grid) {
+        Search search = new Search(new int[0], false);
+        search.queueAll();
+        return search.propagate(grid);
+    }
+    
+    /**
+     * Bestimmt die Reihenfolge der Werte für eine Zelle basierend auf der Heatmap.
+     */
+    private int[] valueOrder(int row, int col) {
+        if (heatmap[row][col] >= 0.5) {
+            return new int[]{1, 0};
+        }
+        return new int[]{0, 1};
     }
     
     /**
@@ -115,14 +805,22 @@ public class HeuristicSolver {
      * - Constraint Tightness (wie wenige Optionen bleiben)
      * - Heatmap Confidence (wie sicher sind wir uns)
      */
-    private int[] selectNextCell(Grid grid) {
+    int[] selectNextCell(Grid grid) {
+        return selectNextCell(grid, null);
+    }
+    
+    /**
+     * Wie selectNextCell(Grid), aber nur unter den Zellen mit scope[cell]
+     * (null = alle Zellen).
+     */
+    private int[] selectNextCell(Grid grid, boolean[] scope) {
         int bestRow = -1;
         int bestCol = -1;
         double bestScore = Double.NEGATIVE_INFINITY;
         
         for (int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
-                if (grid.isAssigned(i, j)) {
+                if (grid.isAssigned(i, j) || scope != null && !scope[i * size + j]) {
                     continue;
                 }
                 
@@ -147,7 +845,7 @@ public class HeuristicSolver {
      * Berechnet einen Score für die Zellauswahl.
      * Höhere Scores = sollte früher belegt werden.
      */
-    private double computeCellScore(Grid grid, int row, int col) {
+    double computeCellScore(Grid grid, int row, int col) {
         // Constraint Tightness: Wie "voll" sind die Linien durch diese Zelle?
         double tightness = 0;
         
@@ -191,7 +889,7 @@ public class HeuristicSolver {
     /**
      * Prüft ob ein Wert für eine Zelle noch möglich ist (Forward Checking).
      */
-    private boolean isValueFeasible(Grid grid, int row, int col, int value) {
+    boolean isValueFeasible(Grid grid, int row, int col, int value) {
         if (value == 1) {
             // Prüfe ob wir noch Platz für eine 1 haben
             if (grid.getRowSum(row) >= constraints.getRowSum(row)) return false;
@@ -223,235 +921,1054 @@ public class HeuristicSolver {
     }
     
     /**
-     * Constraint Propagation: Findet und setzt erzwungene Zellen.
-     * Gibt false zurück wenn ein Konflikt erkannt wird.
+     * Prüft ob eine vollständige Belegung alle Constraints erfüllt.
      */
-    private boolean propagate(Grid grid) {
-        boolean changed = true;
+    private boolean isValidSolution(Grid grid) {
+        // Prüfe Zeilen
+        for (int i = 0; i < size; i++) {
+            if (grid.getRowSum(i) != constraints.getRowSum(i)) return false;
+        }
         
-        while (changed) {
-            changed = false;
-            
-            // Prüfe Zeilen
-            for (int i = 0; i < size; i++) {
-                int result = propagateLine(grid, i, true);
-                if (result == -1) return false;
-                if (result == 1) changed = true;
-            }
-            
-            // Prüfe Spalten
+        // Prüfe Spalten
+        for (int j = 0; j < size; j++) {
+            if (grid.getColSum(j) != constraints.getColSum(j)) return false;
+        }
+        
+        // Prüfe Hauptdiagonalen (k = row + col)
+        for (int k = 0; k <= 2 * (size - 1); k++) {
+            if (grid.getDiagDownSum(k) != constraints.getDiagDownSum(k)) return false;
+        }
+        
+        // Prüfe Nebendiagonalen (k = col - row + (size-1))
+        for (int k = 0; k <= 2 * (size - 1); k++) {
+            if (grid.getDiagUpSum(k) != constraints.getDiagUpSum(k)) return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Kombiniert mehrere Lösungen zu einer Ausgabe mit '?' für mehrdeutige Felder.
+     */
+    public static Grid combineSolutions(List<Grid> solutions) {
+        if (solutions.isEmpty()) {
+            return null;
+        }
+        
+        if (solutions.size() == 1) {
+            return solutions.get(0);
+        }
+        
+        int size = solutions.get(0).getSize();
+        Grid combined = new Grid(size);
+        
+        for (int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
-                int result = propagateLine(grid, j, false);
-                if (result == -1) return false;
-                if (result == 1) changed = true;
-            }
-            
-            // Prüfe Hauptdiagonalen (k = row + col, range 0 to 2*(size-1))
-            for (int k = 0; k <= 2 * (size - 1); k++) {
-                int result = propagateDiagDown(grid, k);
-                if (result == -1) return false;
-                if (result == 1) changed = true;
-            }
-            
-            // Prüfe Nebendiagonalen (k = col - row + (size-1), range 0 to 2*(size-1))
-            for (int k = 0; k <= 2 * (size - 1); k++) {
-                int result = propagateDiagUp(grid, k);
-                if (result == -1) return false;
-                if (result == 1) changed = true;
+                int firstValue = solutions.get(0).get(i, j);
+                boolean allSame = true;
+                
+                for (Grid solution : solutions) {
+                    if (solution.get(i, j) != firstValue) {
+                        allSame = false;
+                        break;
+                    }
+                }
+                
+                if (allSame) {
+                    combined.set(i, j, firstValue);
+                }
+                // Sonst bleibt -1 (wird als '?' ausgegeben)
             }
         }
         
-        return true;
+        return combined;
     }
     
     /**
-     * Propagiert Constraints für eine Zeile oder Spalte.
-     * Gibt zurück: -1 = Konflikt, 0 = keine Änderung, 1 = Änderung
+     * Zustand einer sequentiellen Suche: Trail, Propagations-Warteschlange
+     * und der Pfad der Entscheidungen (Index des probierten Werts pro Ebene).
+     * Jeder Thread arbeitet mit einer eigenen Instanz.
      */
-    private int propagateLine(Grid grid, int index, boolean isRow) {
-        int sum = isRow ? grid.getRowSum(index) : grid.getColSum(index);
-        int unassigned = isRow ? grid.getRowUnassigned(index) : grid.getColUnassigned(index);
-        int target = isRow ? constraints.getRowSum(index) : constraints.getColSum(index);
+    class Search {
+        final Trail trail; // null im Kopier-Modus
+        private final LineQueue queue;
+        private final int[] path;
+        
+        // Zellauswahl im Trail-Modus bei großen Rastern: Heap der Scores,
+        // aktualisiert nur für Zellen auf Linien, die sich seit der letzten
+        // Auswahl geändert haben
+        private final CellHeap heap;
+        private final LineQueue dirty;
+        private final int[] stamp;
+        private int epoch;
+        private int untilLimitCheck;
+        
+        // Paar-Stufe der Propagation: Linien, die sich seit der letzten Stufe
+        // geändert haben, bereits geprüfte Zellen (stamp == epoch) und die
+        // Linienindizes der gerade geprüften Zelle pro Linientyp
+        private final LineQueue pairQueue;
+        private final int[] pairStamp;
+        private int pairEpoch;
+        private final int[] crossIndex;
+        // Grund, an dem pairFeasible zuletzt scheiterte: knappe Linientypen
+        // (Bits ab 18), Typ und Index der kreuzenden Linie
+        private int pairCross;
         
-        int remaining = target - sum;
+        // Flussprüfung für Zeilen/Spalten und Haupt-/Nebendiagonalen, erst beim
+        // ersten Aufruf angelegt
+        private FlowCheck[] flows;
+        private int[] flowFixed;
+        private long flowCalls;  // Flussprüfung nur bei jedem flowInterval-ten Aufruf
         
-        // Konflikt: Mehr gefüllt als erlaubt
-        if (remaining < 0) return -1;
+        // Entscheidungsstapel der iterativen Suche, ein Eintrag pro Tiefe
+        private int[] frameRow;
+        private int[] frameCol;
+        private int[] frameFirst;  // zuerst probierter Wert
+        private int[] frameBranch; // nächster zu probierender Zweig (0, 1, 2 = fertig)
+        private int[] frameMark;   // Trail-Checkpoint des aktuellen Zweigs
+        private Grid[] frameGrid;  // Grid der Ebene im Kopier-Modus
+        private long[] frameFound; // found/skipped beim Betreten der Ebene
+        private long[] frameSkipped;
         
-        // Konflikt: Nicht genug Platz für benötigte Felder
-        if (remaining > unassigned) return -1;
+        // Backjumping und Probing (nur im Trail-Modus, null = aus) und der
+        // Grund der nächsten Zuweisung für die Konfliktanalyse
+        private final Backjumping cbj;
+        private final Prober prober;
+        private int nextCause = Backjumping.CAUSE_GLOBAL;
         
-        // Wenn keine Änderung möglich
-        if (unassigned == 0) return 0;
+        // Gefundene Lösungen und übersprungene Teilbäume (Limit, isClosed):
+        // ändert sich keins von beiden unter einem Knoten, ist sein Teilbaum
+        // bewiesen leer und das Backjumping darf springen
+        private long found;
+        private long skipped;
         
-        boolean changed = false;
+        // Symmetrie, die propagate() bricht (null = keine), und ob die
+        // Flussprüfung läuft
+        private Symmetry breaking = activeSymmetry();
+        boolean useFlows = flowCheck;
         
-        // Alle verbleibenden müssen 1 sein
-        if (remaining == unassigned) {
-            for (int k = 0; k < size; k++) {
-                int i = isRow ? index : k;
-                int j = isRow ? k : index;
-                if (!grid.isAssigned(i, j)) {
-                    grid.set(i, j, 1);
-                    changed = true;
+        // Komponente, auf die die Suche beschränkt ist (null = alle Zellen)
+        private boolean[] scope;
+        private int[] scopeCells;
+        private Components components;
+        
+        Search(int[] prefix, boolean withTrail) {
+            this.trail = withTrail ? new Trail(size) : null;
+            this.queue = new LineQueue(size);
+            this.pairQueue = new LineQueue(size);
+            this.pairStamp = new int[size * size];
+            this.crossIndex = new int[Grid.LINE_TYPES];
+            this.path = new int[prefix.length + size * size + 1];
+            System.arraycopy(prefix, 0, path, 0, prefix.length);
+            if (withTrail && (size >= HEAP_SELECTION_MIN_SIZE || probing)) {
+                this.heap = new CellHeap(size * size);
+                this.dirty = new LineQueue(size);
+                this.dirty.addAll();
+                this.stamp = new int[size * size];
+            } else {
+                this.heap = null;
+                this.dirty = null;
+                this.stamp = null;
+            }
+            this.cbj = withTrail && backjumping ? new Backjumping(this, constraints, trail, path.length, stats) : null;
+            this.prober = withTrail && probing ? new Prober(HeuristicSolver.this, this, trail, size, probeCells, stats) : null;
+        }
+        
+        /**
+         * Wählt die nächste Zelle. Mit Heap wird nur neu bewertet, was sich
+         * geändert hat, sonst werden mit selectNextCell() alle Zellen durchlaufen.
+         * Beide Wege wählen dieselbe Zelle.
+         */
+        int[] select(Grid grid) {
+            if (heap == null) {
+                return selectNextCell(grid, scope);
+            }
+            updateHeap(grid);
+            int best = heap.peek();
+            if (best == -1) {
+                return null;
+            }
+            return new int[]{best / size, best % size};
+        }
+        
+        /**
+         * Schreibt die höchstens count besten offenen Zellen der Zellauswahl
+         * nach Score absteigend nach cells (nur mit Heap) und gibt ihre
+         * Anzahl zurück.
+         */
+        int best(Grid grid, int count, int[] cells) {
+            updateHeap(grid);
+            return heap.top(count, cells);
+        }
+        
+        /**
+         * Berechnet die Scores im Heap nur für Zellen auf Linien neu, die sich
+         * seit dem letzten Aufruf geändert haben.
+         */
+        private void updateHeap(Grid grid) {
+            epoch++;
+            while (!dirty.isEmpty()) {
+                int line = dirty.poll();
+                int type = dirty.getType(line);
+                int index = dirty.getIndex(line);
+                int start = grid.getLineStart(type, index);
+                int end = start + grid.getLineLength(type, index);
+                for (int pos = start; pos < end; pos++) {
+                    int row = grid.getCellRow(type, index, pos);
+                    int col = grid.getCellCol(type, index, pos);
+                    int cell = row * size + col;
+                    if (stamp[cell] == epoch) {
+                        continue;
+                    }
+                    stamp[cell] = epoch;
+                    if (grid.isAssigned(row, col) || scope != null && !scope[cell]) {
+                        heap.remove(cell);
+                    } else {
+                        heap.update(cell, computeCellScore(grid, row, col));
+                    }
                 }
             }
         }
         
-        // Summe erreicht: alle verbleibenden müssen 0 sein
-        if (remaining == 0) {
-            for (int k = 0; k < size; k++) {
-                int i = isRow ? index : k;
-                int j = isRow ? k : index;
-                if (!grid.isAssigned(i, j)) {
-                    grid.set(i, j, 0);
-                    changed = true;
+        /**
+         * Beschränkt die folgenden Suchen auf die Zellen einer Komponente
+         * (null = alle Zellen). Eine Lösung ist dann erreicht, sobald die
+         * Zellen der Komponente gesetzt sind; die übrigen bleiben offen.
+         */
+        void setScope(int[] cells) {
+            if (cells == null) {
+                scope = null;
+            } else {
+                scope = new boolean[size * size];
+                for (int cell : cells) {
+                    scope[cell] = true;
                 }
             }
+            scopeCells = cells;
+            if (dirty != null) {
+                dirty.addAll(); // Heap für die neue Auswahl neu aufbauen
+            }
         }
         
-        return changed ? 1 : 0;
-    }
-    
-    /**
-     * Propagiert Constraints für eine Hauptdiagonale (k = row + col).
-     */
-    private int propagateDiagDown(Grid grid, int k) {
-        int sum = grid.getDiagDownSum(k);
-        int unassigned = grid.getDiagDownUnassigned(k);
-        int target = constraints.getDiagDownSum(k);
+        Components components() {
+            if (components == null) {
+                components = new Components(size);
+            }
+            return components;
+        }
         
-        int remaining = target - sum;
+        /**
+         * Prüft an einem Blatt, ob das Grid (bzw. die Komponente) gelöst ist.
+         */
+        boolean isSolved(Grid grid) {
+            return scope != null ? isScopeSolved(grid) : isValidSolution(grid);
+        }
         
-        if (remaining < 0) return -1;
-        if (remaining > unassigned) return -1;
-        if (unassigned == 0) return 0;
+        /**
+         * Prüft, ob alle Linien durch die Zellen der Komponente vollständig
+         * und erfüllt sind.
+         */
+        private boolean isScopeSolved(Grid grid) {
+            for (int cell : scopeCells) {
+                for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                    int index = grid.getLineIndex(type, cell / size, cell % size);
+                    if (grid.getLineUnassigned(type, index) > 0
+                            || grid.getLineSum(type, index) != constraints.getLineSum(type, index)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
         
-        boolean changed = false;
+        /**
+         * Macht alle Zuweisungen seit dem Checkpoint rückgängig.
+         */
+        void undo(Grid grid, int mark) {
+            if (cbj != null) {
+                cbj.undone(mark);
+            }
+            if (dirty == null) {
+                trail.undo(grid, mark);
+                return;
+            }
+            while (trail.size() > mark) {
+                int cell = trail.undoLast(grid);
+                dirty.addCell(cell / size, cell % size);
+            }
+        }
         
-        if (remaining == unassigned) {
-            for (int i = 0; i < size; i++) {
-                int j = k - i;
-                if (j >= 0 && j < size && !grid.isAssigned(i, j)) {
-                    grid.set(i, j, 1);
-                    changed = true;
+        /**
+         * Hauptbacktracking-Algorithmus, iterativ mit explizitem Entscheidungsstapel.
+         * 
+         * Jede Ebene merkt sich die gewählte Zelle, den zuerst probierten Wert,
+         * den nächsten Zweig und den Trail-Checkpoint (im Kopier-Modus das Grid
+         * der Ebene). Die Reihenfolge der Knoten ist dieselbe wie bei einer
+         * rekursiven Tiefensuche, die Tiefe ist aber nicht mehr durch den
+         * Thread-Stack begrenzt.
+         */
+        void backtrack(Grid grid, int baseDepth) {
+            if (cbj != null) {
+                cbj.reset();
+            }
+            int start = trail != null ? trail.mark() : 0;
+            explore(grid, baseDepth);
+            if (trail != null) {
+                undo(grid, start); // auch was das Probing am ersten Knoten gesetzt hat
+            }
+            if (cbj != null) {
+                // Gelernte Nogoods gelten nur für die Zellen vor dieser Suche
+                cbj.reset();
+            }
+        }
+        
+        private void explore(Grid grid, int baseDepth) {
+            if (!enter(grid, baseDepth)) {
+                return;
+            }
+            if (trail == null) {
+                frameGrid[baseDepth] = grid;
+            }
+            
+            int depth = baseDepth;
+            while (true) {
+                Grid current = trail != null ? grid : frameGrid[depth];
+                boolean descended = false;
+                
+                while (frameBranch[depth] < 2) {
+                    int branch = frameBranch[depth]++;
+                    int row = frameRow[depth];
+                    int col = frameCol[depth];
+                    int value = branch == 0 ? frameFirst[depth] : 1 - frameFirst[depth];
+                    path[depth] = branch;
+                    if (solutions.isClosed(path, depth + 1)) {
+                        frameBranch[depth] = 2;
+                        skipped++;
+                        break;
+                    }
+                    
+                    // Forward Check: Ist dieser Wert überhaupt möglich?
+                    SolverStats stats = HeuristicSolver.this.stats;
+                    long time = stats != null ? System.nanoTime() : 0;
+                    boolean feasible = isValueFeasible(current, row, col, value);
+                    if (stats != null) {
+                        stats.time(SolverStats.FEASIBLE, System.nanoTime() - time);
+                    }
+                    if (!feasible) {
+                        if (cbj != null) {
+                            cbj.conflictInfeasible(current, row, col, value, depth);
+                            branchFailed(depth);
+                        }
+                        continue;
+                    }
+                    
+                    Grid child;
+                    if (trail != null) {
+                        // Wert setzen, propagieren und beim Rückweg bis zum Checkpoint zurücksetzen
+                        frameMark[depth] = trail.mark();
+                        child = current;
+                    } else {
+                        // Kopiere Grid und setze Wert
+                        time = stats != null ? System.nanoTime() : 0;
+                        child = current.copy();
+                        if (stats != null) {
+                            stats.time(SolverStats.COPY, System.nanoTime() - time);
+                        }
+                    }
+                    if (cbj != null) {
+                        cbj.decide(depth, (row * size + col) * 2 + value);
+                    }
+                    nextCause = Backjumping.CAUSE_DECISION;
+                    assign(child, row, col, value);
+                    nextCause = Backjumping.CAUSE_GLOBAL;
+                    
+                    // Constraint Propagation, danach eine Ebene tiefer
+                    if (propagate(child) && enter(child, depth + 1)) {
+                        if (trail == null) {
+                            frameGrid[depth + 1] = child;
+                        }
+                        depth++;
+                        descended = true;
+                        break;
+                    }
+                    if (cbj != null) {
+                        branchFailed(depth);
+                    }
+                    retract(current, depth);
+                }
+                
+                if (descended) {
+                    continue;
+                }
+                
+                // Alle Zweige dieser Ebene probiert: zurück zur vorherigen oder,
+                // wenn der Teilbaum ohne Lösung an älteren Entscheidungen
+                // gescheitert ist, gleich zur jüngsten davon
+                boolean clean = found == frameFound[depth] && skipped == frameSkipped[depth];
+                if (clean && useNogoods && scope == null) {
+                    storeNogood(current);
+                }
+                if (trail == null) {
+                    frameGrid[depth] = null;
                 }
+                int target = cbj != null ? cbj.target(depth, baseDepth, clean) : depth - 1;
+                if (target < baseDepth) {
+                    if (depth > baseDepth) {
+                        undo(grid, frameMark[baseDepth]);
+                    }
+                    return;
+                }
+                depth = target;
+                retract(trail != null ? grid : frameGrid[depth], depth);
+            }
+        }
+        
+        /**
+         * Nach einem gescheiterten Zweig der Ebene (siehe
+         * Backjumping.branchFailed): der andere Wert wird nicht mehr
+         * probiert, wenn er genauso scheitert.
+         */
+        private void branchFailed(int depth) {
+            if (cbj.branchFailed(depth)) {
+                frameBranch[depth] = 2;
             }
         }
         
-        if (remaining == 0) {
-            for (int i = 0; i < size; i++) {
-                int j = k - i;
-                if (j >= 0 && j < size && !grid.isAssigned(i, j)) {
-                    grid.set(i, j, 0);
-                    changed = true;
+        /**
+         * Konflikt, der von allen Entscheidungen abhängen kann (Fluss,
+         * Symmetrie, Probing).
+         */
+        private void conflictGlobal() {
+            if (cbj != null) {
+                cbj.conflictGlobal();
+            }
+        }
+        
+        /**
+         * Betritt einen Knoten auf der angegebenen Tiefe. Gibt true zurück, wenn
+         * eine Zelle gewählt und die Ebene auf dem Stapel angelegt wurde, false
+         * bei einem Blatt (Lösung, übersprungener Teilbaum oder Limit).
+         */
+        private boolean enter(Grid grid, int depth) {
+            if (solutions.isClosed(path, depth)) {
+                skipped++;
+                return false;
+            }
+            
+            nodeCount.increment();
+            if (--untilLimitCheck <= 0) {
+                untilLimitCheck = LIMIT_CHECK_INTERVAL;
+                if (checkLimits()) {
+                    skipped++;
+                    return false;
                 }
             }
+            if (useNogoods && scope == null && isNogood(grid)) {
+                conflictGlobal();
+                return false;
+            }
+            if (prober != null) {
+                if (!prober.probe(grid)) {
+                    conflictGlobal();
+                    return false;
+                }
+                if (cbj != null) {
+                    cbj.clearConflict(); // Konflikte aus verworfenen Proben
+                }
+            }
+            SolverStats stats = HeuristicSolver.this.stats;
+            if (stats != null) {
+                stats.node(depth);
+            }
+            
+            // Wähle nächste Zelle basierend auf Heuristik
+            long time = stats != null ? System.nanoTime() : 0;
+            int[] nextCell = select(grid);
+            if (stats != null) {
+                stats.time(SolverStats.SELECT, System.nanoTime() - time);
+            }
+            
+            // Wenn keine unzugewiesene Zelle mehr existiert, prüfe ob Lösung gültig
+            if (nextCell == null) {
+                if (isSolved(grid)) {
+                    found++;
+                    solutions.add(path, depth, grid.copy());
+                } else {
+                    conflictGlobal();
+                }
+                return false;
+            }
+            
+            if (frameRow == null) {
+                allocateFrames();
+            }
+            frameFound[depth] = found;
+            frameSkipped[depth] = skipped;
+            if (cbj != null) {
+                cbj.enterLevel(depth);
+            }
+            int row = nextCell[0];
+            int col = nextCell[1];
+            frameRow[depth] = row;
+            frameCol[depth] = col;
+            frameFirst[depth] = valueOrder(row, col)[0];
+            frameBranch[depth] = 0;
+            return true;
         }
         
-        return changed ? 1 : 0;
-    }
-    
-    /**
-     * Propagiert Constraints für eine Nebendiagonale (k = col - row + (size-1)).
-     */
-    private int propagateDiagUp(Grid grid, int k) {
-        int sum = grid.getDiagUpSum(k);
-        int unassigned = grid.getDiagUpUnassigned(k);
-        int target = constraints.getDiagUpSum(k);
+        /**
+         * Trägt grid als Teilbaum ohne Lösung ein.
+         */
+        private void storeNogood(Grid grid) {
+            NogoodTable table = nogoods;
+            if (table == null) {
+                synchronized (HeuristicSolver.this) {
+                    if (nogoods == null) {
+                        nogoods = new NogoodTable(nogoodMegabytes);
+                    }
+                    table = nogoods;
+                }
+            }
+            boolean evicted = table.put(components().key(grid), size * size - grid.countAssigned(), NogoodTable.NOGOOD);
+            if (stats != null) {
+                stats.nogoodStore(evicted);
+            }
+        }
         
-        int remaining = target - sum;
+        /**
+         * true, wenn grid als Teilbaum ohne Lösung eingetragen ist. Den
+         * ganzen Schlüssel baut erst ein Treffer auf den Hash.
+         */
+        private boolean isNogood(Grid grid) {
+            NogoodTable table = nogoods;
+            if (table == null) {
+                return false;
+            }
+            boolean hit = table.containsHash(grid.getHash()) && table.get(components().key(grid)) == NogoodTable.NOGOOD;
+            if (stats != null) {
+                stats.nogoodLookup(hit);
+            }
+            return hit;
+        }
+        
+        /**
+         * Nimmt die zuletzt probierte Entscheidung der Ebene zurück.
+         */
+        private void retract(Grid grid, int depth) {
+            if (trail != null) {
+                undo(grid, frameMark[depth]);
+            }
+            if (stats != null) {
+                stats.backtrack();
+            }
+        }
         
-        if (remaining < 0) return -1;
-        if (remaining > unassigned) return -1;
-        if (unassigned == 0) return 0;
+        /**
+         * Legt den Entscheidungsstapel erst beim ersten verzweigenden Knoten an,
+         * weil viele Search-Instanzen (z.B. in SearchTask) nie verzweigen.
+         */
+        private void allocateFrames() {
+            int capacity = path.length;
+            frameRow = new int[capacity];
+            frameCol = new int[capacity];
+            frameFirst = new int[capacity];
+            frameBranch = new int[capacity];
+            frameFound = new long[capacity];
+            frameSkipped = new long[capacity];
+            if (trail != null) {
+                frameMark = new int[capacity];
+            } else {
+                frameGrid = new Grid[capacity];
+            }
+        }
         
-        boolean changed = false;
+        /**
+         * Legt alle Linien in die Warteschlangen (vor der initialen Propagation).
+         */
+        void queueAll() {
+            queue.addAll();
+            if (pairPropagation) {
+                pairQueue.addAll();
+            }
+        }
         
-        if (remaining == unassigned) {
-            for (int i = 0; i < size; i++) {
-                int j = k - (size - 1) + i;
-                if (j >= 0 && j < size && !grid.isAssigned(i, j)) {
-                    grid.set(i, j, 1);
-                    changed = true;
+        /**
+         * Constraint Propagation: Findet und setzt erzwungene Zellen.
+         * Bearbeitet nur Linien aus der Warteschlange, also Linien, in denen sich
+         * seit der letzten Propagation etwas geändert hat. Jede neu gesetzte Zelle
+         * legt ihre vier Linien wieder in die Warteschlange.
+         * Ist die Warteschlange leer, folgt die Paar-Stufe (propagatePairs);
+         * setzt sie Zellen, geht es mit deren Linien von vorn los. Zum Schluss
+         * prüft die Flussprüfung (checkFlows) bei jedem flowInterval-ten Aufruf
+         * den ganzen Rest des Rasters; auch nach ihren Zellen beginnt die
+         * Propagation von vorn. Bei symmetrischen Constraints prüft zuletzt
+         * checkSymmetry die Symmetriebrechung.
+         * Gibt false zurück wenn ein Konflikt erkannt wird.
+         */
+        boolean propagate(Grid grid) {
+            SolverStats stats = HeuristicSolver.this.stats;
+            long time = 0;
+            if (stats != null) {
+                stats.propagation();
+                time = System.nanoTime();
+            }
+            
+            boolean consistent = propagateLines(grid);
+            boolean checkFlow = useFlows && flowCalls++ % flowInterval == 0;
+            while (consistent && checkFlow) {
+                int fixed = checkFlows(grid);
+                if (fixed <= 0) {
+                    consistent = fixed == 0;
+                    break;
+                }
+                consistent = propagateLines(grid);
+            }
+            Symmetry symmetry = breaking;
+            while (consistent && symmetry != null) {
+                int fixed = checkSymmetry(grid, symmetry);
+                if (fixed <= 0) {
+                    consistent = fixed == 0;
+                    break;
                 }
+                consistent = propagateLines(grid);
             }
+            
+            if (stats != null) {
+                stats.time(SolverStats.PROPAGATE, System.nanoTime() - time);
+            }
+            return consistent;
         }
         
-        if (remaining == 0) {
-            for (int i = 0; i < size; i++) {
-                int j = k - (size - 1) + i;
-                if (j >= 0 && j < size && !grid.isAssigned(i, j)) {
-                    grid.set(i, j, 0);
-                    changed = true;
+        /**
+         * Linienpropagation mit gelernten Nogoods und Paar-Stufe, bis sich
+         * nichts mehr ändert.
+         */
+        private boolean propagateLines(Grid grid) {
+            boolean consistent = propagateQueue(grid);
+            while (consistent) {
+                int forced = cbj != null ? cbj.propagate(grid) : 0;
+                if (forced < 0) {
+                    queue.clear();
+                    pairQueue.clear();
+                    return false;
+                }
+                if (forced == 0 && !(pairPropagation && propagatePairs(grid))) {
+                    break;
                 }
+                consistent = propagateQueue(grid);
             }
+            return consistent;
         }
         
-        return changed ? 1 : 0;
-    }
-    
-    /**
-     * Prüft ob eine vollständige Belegung alle Constraints erfüllt.
-     */
-    private boolean isValidSolution(Grid grid) {
-        // Prüfe Zeilen
-        for (int i = 0; i < size; i++) {
-            if (grid.getRowSum(i) != constraints.getRowSum(i)) return false;
+        /**
+         * Lex-leader-Bedingung X <= g(X) für jede Symmetrie g: Zellen in
+         * Zeilen-Reihenfolge, g(X) hat in Zelle q den Wert von X in
+         * getPreimage(g, q). Solange beide Seiten gleich fest sind, geht es
+         * weiter; die erste offene Stelle wird gesetzt, wenn nur ein Wert die
+         * Bedingung erfüllen kann (X[q] = 1 erzwingt 1 im Urbild, 0 im Urbild
+         * erzwingt X[q] = 0). Gibt die Anzahl der gesetzten Zellen zurück,
+         * -1 bei einem Widerspruch.
+         */
+        private int checkSymmetry(Grid grid, Symmetry symmetry) {
+            int fixed = 0;
+            for (int g = 0; g < symmetry.getCount(); g++) {
+                for (int q = 0; q < size * size; q++) {
+                    int p = symmetry.getPreimage(g, q);
+                    if (p == q) {
+                        continue;
+                    }
+                    int a = grid.get(q / size, q % size);
+                    int b = grid.get(p / size, p % size);
+                    if (a != -1 && b != -1) {
+                        if (a != b) {
+                            if (a > b) {
+                                conflictGlobal();
+                                return -1;
+                            }
+                            break; // X < g(X), Bedingung erfüllt
+                        }
+                    } else if (a == 1) {
+                        assign(grid, p / size, p % size, 1);
+                        fixed++;
+                    } else if (b == 0) {
+                        assign(grid, q / size, q % size, 0);
+                        fixed++;
+                    } else {
+                        break;
+                    }
+                }
+            }
+            return fixed;
         }
         
-        // Prüfe Spalten
-        for (int j = 0; j < size; j++) {
-            if (grid.getColSum(j) != constraints.getColSum(j)) return false;
+        /**
+         * Prüft beide Linienpaare mit FlowCheck und setzt die Zellen, die in
+         * jeder Lösung eines Paares gleich belegt sind. Gibt die Anzahl der
+         * gesetzten Zellen zurück, -1 bei einem Widerspruch.
+         * 
+         * Sobald ein Paar Zellen setzt, endet die Prüfung: der Fluss des
+         * anderen Paares passt dann nicht mehr zum Raster, propagate() ruft
+         * nach der Linienpropagation erneut auf.
+         */
+        private int checkFlows(Grid grid) {
+            SolverStats stats = HeuristicSolver.this.stats;
+            if (flows == null) {
+                flows = new FlowCheck[]{
+                    new FlowCheck(constraints, Grid.ROW, Grid.COL),
+                    new FlowCheck(constraints, Grid.DIAG_DOWN, Grid.DIAG_UP)
+                };
+                flowFixed = new int[size * size];
+            }
+            for (FlowCheck flow : flows) {
+                if (!flow.check(grid)) {
+                    if (stats != null) {
+                        stats.flowConflict();
+                    }
+                    conflictGlobal();
+                    return -1;
+                }
+                int count = flow.findFixed(grid, flowFixed);
+                for (int i = 0; i < count; i++) {
+                    int cell = flowFixed[i] >> 1;
+                    assign(grid, cell / size, cell % size, flowFixed[i] & 1);
+                }
+                if (count > 0) {
+                    if (stats != null) {
+                        stats.flowForced(count);
+                    }
+                    return count;
+                }
+            }
+            return 0;
         }
         
-        // Prüfe Hauptdiagonalen (k = row + col)
-        for (int k = 0; k <= 2 * (size - 1); k++) {
-            if (grid.getDiagDownSum(k) != constraints.getDiagDownSum(k)) return false;
+        /**
+         * Arbeitet die Linien der Warteschlange ab, bis sich nichts mehr ändert.
+         */
+        private boolean propagateQueue(Grid grid) {
+            while (!queue.isEmpty()) {
+                int line = queue.poll();
+                int type = queue.getType(line);
+                if (propagateLine(grid, type, queue.getIndex(line)) == -1) {
+                    if (cbj != null) {
+                        cbj.conflictLine(grid, type, queue.getIndex(line));
+                    }
+                    queue.clear();
+                    pairQueue.clear();
+                    if (stats != null) {
+                        stats.conflict(type);
+                    }
+                    return false;
+                }
+            }
+            return true;
         }
         
-        // Prüfe Nebendiagonalen (k = col - row + (size-1))
-        for (int k = 0; k <= 2 * (size - 1); k++) {
-            if (grid.getDiagUpSum(k) != constraints.getDiagUpSum(k)) return false;
+        /**
+         * Paar-Stufe der Propagation. Eine Linie ist für einen Wert "knapp",
+         * wenn dieser Wert in einer ihrer freien Zellen alle anderen freien
+         * Zellen erzwingt: bei einer 1 fehlt nur noch eine 1 (der Rest wird 0),
+         * bei einer 0 nur noch eine 0 (der Rest wird 1).
+         * 
+         * Liegt eine Zelle auf zwei oder mehr knappen Linien, erzwingt der Wert
+         * dort Zellen auf all diesen Linien zugleich. Eine Linie, die zwei davon
+         * kreuzt, bekommt also mehrere erzwungene Zellen auf einmal, was die
+         * einfache Propagation erst nach der Zuweisung sieht. Passt das nicht
+         * mehr zu ihrer Summe, ist der Wert unmöglich und die Zelle bekommt den
+         * anderen. Geprüft werden nur Zellen auf knappen Linien, die sich seit
+         * der letzten Paar-Stufe geändert haben.
+         * Gibt true zurück, wenn Zellen gesetzt wurden.
+         */
+        private boolean propagatePairs(Grid grid) {
+            boolean changed = false;
+            pairEpoch++;
+            while (!pairQueue.isEmpty()) {
+                int line = pairQueue.poll();
+                int type = pairQueue.getType(line);
+                int index = pairQueue.getIndex(line);
+                int unassigned = grid.getLineUnassigned(type, index);
+                int remaining = remaining(grid, type, index);
+                if (unassigned < 2 || (remaining != 1 && unassigned - remaining != 1)) {
+                    continue;
+                }
+                
+                int words = grid.getWordsPerLine();
+                for (int w = 0; w < words; w++) {
+                    long free = grid.getUnassignedMask(type, index, w);
+                    while (free != 0) {
+                        int pos = (w << 6) + Long.numberOfTrailingZeros(free);
+                        free &= free - 1;
+                        int row = grid.getCellRow(type, index, pos);
+                        int col = grid.getCellCol(type, index, pos);
+                        int cell = row * size + col;
+                        if (pairStamp[cell] == pairEpoch) {
+                            continue;
+                        }
+                        pairStamp[cell] = pairEpoch;
+                        
+                        for (int value = 0; value <= 1; value++) {
+                            if (!pairFeasible(grid, row, col, value)) {
+                                if (stats != null) {
+                                    stats.pairForced(1);
+                                }
+                                nextCause = Backjumping.CAUSE_PAIR - pairCross;
+                                assign(grid, row, col, 1 - value);
+                                nextCause = Backjumping.CAUSE_GLOBAL;
+                                pairEpoch++; // geprüfte Zellen können jetzt anders ausfallen
+                                changed = true;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            return changed;
         }
         
-        return true;
+        /**
+         * Prüft, ob der Wert in der Zelle mit den Linien verträglich ist, die
+         * zwei oder mehr der dadurch gefüllten knappen Linien kreuzen.
+         */
+        private boolean pairFeasible(Grid grid, int row, int col, int value) {
+            int[] index = crossIndex;
+            int tight = 0; // Bit pro Linientyp
+            for (int type = 0; type < Grid.LINE_TYPES; type++) {
+                index[type] = grid.getLineIndex(type, row, col);
+                int unassigned = grid.getLineUnassigned(type, index[type]);
+                int remaining = remaining(grid, type, index[type]);
+                if (unassigned >= 2 && (value == 1 ? remaining == 1 : unassigned - remaining == 1)) {
+                    tight |= 1 << type;
+                }
+            }
+            if (Integer.bitCount(tight) < 2) {
+                return true;
+            }
+            
+            int cell = row * size + col;
+            int words = grid.getWordsPerLine();
+            for (int cross = 0; cross < Grid.LINE_TYPES; cross++) {
+                int lines = tight & ~(1 << cross);
+                if (Integer.bitCount(lines) < 2) {
+                    continue;
+                }
+                int first = Integer.numberOfTrailingZeros(lines);
+                int second = Integer.numberOfTrailingZeros(lines & ~(1 << first));
+                int third = lines == ((1 << first) | (1 << second)) ? -1 : 31 - Integer.numberOfLeadingZeros(lines);
+                int maxCount = third == -1 ? 2 : 3;
+                
+                // Kreuzende Linien über die freien Zellen der ersten und, falls
+                // es drei knappe Linien gibt, der zweiten Linie aufzählen
+                for (int k = 0; k < (third == -1 ? 1 : 2); k++) {
+                    int type = k == 0 ? first : second;
+                    for (int w = 0; w < words; w++) {
+                        long free = grid.getUnassignedMask(type, index[type], w);
+                        while (free != 0) {
+                            int pos = (w << 6) + Long.numberOfTrailingZeros(free);
+                            free &= free - 1;
+                            int r = grid.getCellRow(type, index[type], pos);
+                            int c = grid.getCellCol(type, index[type], pos);
+                            if (r == row && c == col) {
+                                continue;
+                            }
+                            int m = grid.getLineIndex(cross, r, c);
+                            
+                            // Wert 1 füllt die anderen Zellen mit 0, Wert 0 mit 1.
+                            // Platz für so viele 0en bzw. 1en hat jede Linie schon
+                            // für eine erzwungene Zelle; kritisch ist sie erst, wenn
+                            // er für alle gezählten Zellen nicht mehr reicht.
+                            int remaining = remaining(grid, cross, m);
+                            int room = value == 1 ? grid.getLineUnassigned(cross, m) - remaining : remaining;
+                            if (room >= maxCount) {
+                                continue;
+                            }
+                            if (k == 1 && isForcedOn(grid, first, cross, m, cell)) {
+                                continue; // schon von der ersten Linie aus gezählt
+                            }
+                            int count = 1;
+                            if (k == 0 && isForcedOn(grid, second, cross, m, cell)) {
+                                count++;
+                            }
+                            if (third != -1 && isForcedOn(grid, third, cross, m, cell)) {
+                                count++;
+                            }
+                            if (count > room) {
+                                pairCross = lines << 18 | cross << 16 | m;
+                                return false;
+                            }
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * true, wenn die knappe Linie des Typs durch die geprüfte Zelle die
+         * Linie m in einer anderen freien Zelle schneidet.
+         */
+        private boolean isForcedOn(Grid grid, int type, int cross, int m, int cell) {
+            int crossing = grid.getCrossing(type, crossIndex[type], cross, m);
+            return crossing >= 0 && crossing != cell && !grid.isAssigned(crossing / size, crossing % size);
+        }
+        
+        private int remaining(Grid grid, int type, int index) {
+            return constraints.getLineSum(type, index) - grid.getLineSum(type, index);
+        }
+        
+        /**
+         * Propagiert Constraints für eine Linie (Zeile, Spalte oder Diagonale).
+         * Gibt zurück: -1 = Konflikt, 0 = keine Änderung, 1 = Änderung
+         */
+        private int propagateLine(Grid grid, int type, int index) {
+            int sum = grid.getLineSum(type, index);
+            int unassigned = grid.getLineUnassigned(type, index);
+            int target = constraints.getLineSum(type, index);
+            
+            int remaining = target - sum;
+            
+            // Konflikt: Mehr gefüllt als erlaubt
+            if (remaining < 0) return -1;
+            
+            // Konflikt: Nicht genug Platz für benötigte Felder
+            if (remaining > unassigned) return -1;
+            
+            // Wenn keine Änderung möglich
+            if (unassigned == 0) return 0;
+            
+            // Alle verbleibenden müssen 1 sein
+            if (remaining == unassigned) {
+                nextCause = type << 16 | index;
+                fillLine(grid, type, index, 1);
+                nextCause = Backjumping.CAUSE_GLOBAL;
+                return 1;
+            }
+            
+            // Summe erreicht: alle verbleibenden müssen 0 sein
+            if (remaining == 0) {
+                nextCause = type << 16 | index;
+                fillLine(grid, type, index, 0);
+                nextCause = Backjumping.CAUSE_GLOBAL;
+                return 1;
+            }
+            
+            return 0;
+        }
+        
+        /**
+         * Setzt alle freien Zellen einer Linie auf denselben Wert.
+         * Die freien Zellen werden wortweise aus der Bitmaske der Linie gelesen,
+         * statt jede Position einzeln zu prüfen.
+         */
+        private void fillLine(Grid grid, int type, int index, int value) {
+            if (stats != null) {
+                stats.forced(type, grid.getLineUnassigned(type, index));
+            }
+            int words = grid.getWordsPerLine();
+            for (int w = 0; w < words; w++) {
+                long free = grid.getUnassignedMask(type, index, w);
+                while (free != 0) {
+                    int pos = (w << 6) + Long.numberOfTrailingZeros(free);
+                    free &= free - 1;
+                    assign(grid, grid.getCellRow(type, index, pos), grid.getCellCol(type, index, pos), value);
+                }
+            }
+        }
+        
+        /**
+         * Setzt eine Zelle, im Trail-Modus mit Eintrag auf dem Trail,
+         * und legt ihre vier Linien in die Propagations-Warteschlange.
+         */
+        void assign(Grid grid, int row, int col, int value) {
+            if (trail != null) {
+                trail.assign(grid, row, col, value);
+            } else {
+                grid.set(row, col, value);
+            }
+            if (cbj != null) {
+                cbj.assigned(row * size + col, nextCause, trail.size() - 1);
+            }
+            queue.addCell(row, col);
+            if (pairPropagation) {
+                pairQueue.addCell(row, col);
+            }
+            if (dirty != null) {
+                dirty.addCell(row, col);
+            }
+        }
     }
     
     /**
-     * Kombiniert mehrere Lösungen zu einer Ausgabe mit '?' für mehrdeutige Felder.
+     * ForkJoin-Task für die obersten Ebenen des Suchbaums. Jeder mögliche Wert
+     * der gewählten Zelle wird auf einer Kopie propagiert und als eigener Task
+     * abgegeben; unterhalb der Split-Tiefe sucht der Task sequentiell weiter.
+     * Unausgeglichene Teilbäume werden per Work-Stealing verteilt.
      */
-    public static Grid combineSolutions(List<Grid> solutions) {
-        if (solutions.isEmpty()) {
-            return null;
-        }
+    private class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
         
-        if (solutions.size() == 1) {
-            return solutions.get(0);
-        }
+        private final Grid grid;
+        private final int[] prefix;
+        private final int[] scope; // Zellen der Komponente, null = alle
         
-        int size = solutions.get(0).getSize();
-        Grid combined = new Grid(size);
+        SearchTask(Grid grid, int[] prefix, int[] scope) {
+            this.grid = grid;
+            this.prefix = prefix;
+            this.scope = scope;
+        }
         
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                int firstValue = solutions.get(0).get(i, j);
-                boolean allSame = true;
-                
-                for (Grid solution : solutions) {
-                    if (solution.get(i, j) != firstValue) {
-                        allSame = false;
-                        break;
-                    }
+        @Override
+        protected void compute() {
+            int depth = prefix.length;
+            if (depth >= splitDepth) {
+                Search search = new Search(prefix, useTrail);
+                search.setScope(scope);
+                search.backtrack(grid, depth);
+                return;
+            }
+            if (solutions.isClosed(prefix, depth)) {
+                return;
+            }
+            
+            nodeCount.increment();
+            if (checkLimits()) {
+                return;
+            }
+            if (stats != null) {
+                stats.node(depth);
+            }
+            
+            Search search = new Search(prefix, false);
+            search.setScope(scope);
+            int[] nextCell = search.select(grid);
+            if (nextCell == null) {
+                if (search.isSolved(grid)) {
+                    solutions.add(prefix, depth, grid.copy());
+                }
+                return;
+            }
+            
+            int row = nextCell[0];
+            int col = nextCell[1];
+            int[] valuesToTry = valueOrder(row, col);
+            List<SearchTask> children = new ArrayList<>();
+            
+            for (int branch = 0; branch < valuesToTry.length; branch++) {
+                int value = valuesToTry[branch];
+                if (!isValueFeasible(grid, row, col, value)) {
+                    continue;
                 }
                 
-                if (allSame) {
-                    combined.set(i, j, firstValue);
+                Grid newGrid = grid.copy();
+                search.assign(newGrid, row, col, value);
+                if (search.propagate(newGrid)) {
+                    int[] childPrefix = new int[depth + 1];
+                    System.arraycopy(prefix, 0, childPrefix, 0, depth);
+                    childPrefix[depth] = branch;
+                    children.add(new SearchTask(newGrid, childPrefix, scope));
                 }
-                // Sonst bleibt -1 (wird als '?' ausgegeben)
             }
+            
+            invokeAll(children);
         }
-        
-        return combined;
     }
 }
@@ -1,6 +1,7 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 
 /**
  * Liest die Eingabedatei und erzeugt ein Constraints-Objekt.
@@ -18,46 +19,56 @@ public class InputParser {
      * Parst eine Eingabedatei und gibt die Constraints zurück.
      */
     public static Constraints parse(String filename) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            // 1. Zeile: Größe n
-            String line = reader.readLine();
-            if (line == null) {
-                throw new IOException("Datei ist leer");
-            }
-            int size = Integer.parseInt(line.trim());
-            
-            // 2. Zeile: Spaltensummen
-            line = reader.readLine();
-            if (line == null) {
-                throw new IOException("Spaltensummen fehlen");
-            }
-            int[] colSums = parseIntArray(line, size);
-            
-            // 3. Zeile: Zeilensummen
-            line = reader.readLine();
-            if (line == null) {
-                throw new IOException("Zeilensummen fehlen");
-            }
-            int[] rowSums = parseIntArray(line, size);
-            
-            // 4. Zeile: Hauptdiagonalsummen (2*n - 1 Werte)
-            line = reader.readLine();
-            if (line == null) {
-                throw new IOException("Hauptdiagonalsummen fehlen");
-            }
-            int[] diagDownSums = parseIntArray(line, 2 * size - 1);
-            
-            // 5. Zeile: Nebendiagonalsummen (2*n - 1 Werte)
-            line = reader.readLine();
-            if (line == null) {
-                throw new IOException("Nebendiagonalsummen fehlen");
-            }
-            int[] diagUpSums = parseIntArray(line, 2 * size - 1);
-            
-            return new Constraints(size, colSums, rowSums, diagDownSums, diagUpSums);
+        try (Reader reader = new FileReader(filename)) {
+            return parse(reader);
         }
     }
     
+    /**
+     * Parst Eingabedaten im selben Format aus einem beliebigen Reader,
+     * z.B. aus dem Rumpf einer HTTP-Anfrage. Der Reader wird nicht geschlossen.
+     */
+    public static Constraints parse(Reader input) throws IOException {
+        BufferedReader reader = input instanceof BufferedReader
+                ? (BufferedReader) input : new BufferedReader(input);
+        // 1. Zeile: Größe n
+        String line = reader.readLine();
+        if (line == null) {
+            throw new IOException("Datei ist leer");
+        }
+        int size = Integer.parseInt(line.trim());
+        
+        // 2. Zeile: Spaltensummen
+        line = reader.readLine();
+        if (line == null) {
+            throw new IOException("Spaltensummen fehlen");
+        }
+        int[] colSums = parseIntArray(line, size);
+        
+        // 3. Zeile: Zeilensummen
+        line = reader.readLine();
+        if (line == null) {
+            throw new IOException("Zeilensummen fehlen");
+        }
+        int[] rowSums = parseIntArray(line, size);
+        
+        // 4. Zeile: Hauptdiagonalsummen (2*n - 1 Werte)
+        line = reader.readLine();
+        if (line == null) {
+            throw new IOException("Hauptdiagonalsummen fehlen");
+        }
+        int[] diagDownSums = parseIntArray(line, 2 * size - 1);
+        
+        // 5. Zeile: Nebendiagonalsummen (2*n - 1 Werte)
+        line = reader.readLine();
+        if (line == null) {
+            throw new IOException("Nebendiagonalsummen fehlen");
+        }
+        int[] diagUpSums = parseIntArray(line, 2 * size - 1);
+        
+        return new Constraints(size, colSums, rowSums, diagDownSums, diagUpSums);
+    }
+    
     /**
      * Parst eine Zeile mit durch Leerzeichen getrennten Zahlen.
      */
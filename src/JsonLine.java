@@ -0,0 +1,70 @@
+/**
+ * Baut ein JSON-Objekt in einer Zeile, z.B. für die Berichte von
+ * BatchRunner und SolverServer. Felder erscheinen in der Reihenfolge,
+ * in der sie hinzugefügt werden.
+ */
+public class JsonLine {
+    private final StringBuilder sb = new StringBuilder("{");
+    
+    public JsonLine put(String key, String value) {
+        return putRaw(key, value == null ? "null" : quote(value));
+    }
+    
+    public JsonLine put(String key, long value) {
+        return putRaw(key, Long.toString(value));
+    }
+    
+    public JsonLine put(String key, double value) {
+        return putRaw(key, Double.toString(value));
+    }
+    
+    public JsonLine put(String key, boolean value) {
+        return putRaw(key, Boolean.toString(value));
+    }
+    
+    /**
+     * Ein Grid als Array seiner Zeilen ('#', '.', '?'), null bleibt null.
+     */
+    public JsonLine put(String key, Grid grid) {
+        if (grid == null) {
+            return putRaw(key, "null");
+        }
+        StringBuilder rows = new StringBuilder("[");
+        String[] lines = grid.toString().split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) rows.append(',');
+            rows.append('"').append(lines[i]).append('"');
+        }
+        return putRaw(key, rows.append(']').toString());
+    }
+    
+    /**
+     * Fügt einen bereits fertigen JSON-Wert ein.
+     */
+    public JsonLine putRaw(String key, String json) {
+        if (sb.length() > 1) {
+            sb.append(',');
+        }
+        sb.append(quote(key)).append(':').append(json);
+        return this;
+    }
+    
+    @Override
+    public String toString() {
+        return sb.toString() + "}";
+    }
+    
+    public static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Warteschlange der Linien, die neu propagiert werden müssen.
+ * Jede Linie hat eine feste Nummer: erst die Zeilen, dann die Spalten,
+ * dann die Haupt- und zuletzt die Nebendiagonalen. Eine Linie steht
+ * höchstens einmal in der Warteschlange.
+ */
+public class LineQueue {
+    private final int size;
+    private final int[] offsets; // erste Liniennummer pro Linientyp
+    private final int[] lines;   // Ringpuffer
+    private final boolean[] queued;
+    private int head;
+    private int count;
+    
+    public LineQueue(int size) {
+        this.size = size;
+        int diagCount = 2 * size - 1;
+        this.offsets = new int[]{0, size, 2 * size, 2 * size + diagCount};
+        int total = 2 * size + 2 * diagCount;
+        this.lines = new int[total];
+        this.queued = new boolean[total];
+        this.head = 0;
+        this.count = 0;
+    }
+    
+    /**
+     * Legt die vier Linien durch eine Zelle in die Warteschlange.
+     */
+    public void addCell(int row, int col) {
+        add(offsets[Grid.ROW] + row);
+        add(offsets[Grid.COL] + col);
+        add(offsets[Grid.DIAG_DOWN] + row + col);
+        add(offsets[Grid.DIAG_UP] + col - row + (size - 1));
+    }
+    
+    /**
+     * Legt alle Linien in die Warteschlange (für die initiale Propagation).
+     */
+    public void addAll() {
+        for (int line = 0; line < lines.length; line++) {
+            add(line);
+        }
+    }
+    
+    private void add(int line) {
+        if (queued[line]) {
+            return;
+        }
+        queued[line] = true;
+        int tail = head + count;
+        if (tail >= lines.length) {
+            tail -= lines.length;
+        }
+        lines[tail] = line;
+        count++;
+    }
+    
+    /**
+     * Entnimmt die nächste Liniennummer.
+     */
+    public int poll() {
+        int line = lines[head];
+        queued[line] = false;
+        head++;
+        if (head == lines.length) {
+            head = 0;
+        }
+        count--;
+        return line;
+    }
+    
+    public boolean isEmpty() {
+        return count == 0;
+    }
+    
+    /**
+     * Leert die Warteschlange (nach einem Konflikt).
+     */
+    public void clear() {
+        while (count > 0) {
+            poll();
+        }
+        head = 0;
+    }
+    
+    /**
+     * Linientyp einer Liniennummer (siehe Grid).
+     */
+    public int getType(int line) {
+        if (line < offsets[Grid.COL]) return Grid.ROW;
+        if (line < offsets[Grid.DIAG_DOWN]) return Grid.COL;
+        if (line < offsets[Grid.DIAG_UP]) return Grid.DIAG_DOWN;
+        return Grid.DIAG_UP;
+    }
+    
+    /**
+     * Index der Linie innerhalb ihres Typs.
+     */
+    public int getIndex(int line) {
+        return line - offsets[getType(line)];
+    }
+}
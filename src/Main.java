@@ -1,21 +1,64 @@
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Hauptprogramm für den Bibertomograph-Solver.
  * 
- * Verwendung: java Main <eingabedatei.txt>
+ * Verwendung: java Main [--engine NAME] [--threads N] [--backbone] [--count]
+ *                 [--stats] [--timeout ms] [--nodes N] <eingabedatei.txt>
+ * 
+ * Mit --backbone werden die mehrdeutigen Felder direkt berechnet, statt bis
+ * zu 100 Lösungen aufzuzählen und zu kombinieren. --count zählt alle
+ * Lösungen exakt und gibt pro Zelle den Anteil der Lösungen aus, in denen
+ * sie gefüllt ist (nur mit den heuristic-Solvern); nach einem Limit nur
+ * eine untere Schranke der Anzahl. Mit --stats werden Zähler und Zeiten
+ * der einzelnen Solver-Phasen ausgegeben (siehe SolverStats).
+ * --timeout und --nodes begrenzen die Suche; das Ergebnis ist dann
+ * möglicherweise unvollständig.
+ * 
+ * --engine wählt den Solver (siehe SolverRegistry): heuristic (Standard),
+ * sat, portfolio oder eine Komma-Liste, die als Portfolio gleichzeitig
+ * läuft; das erste fertige Ergebnis gilt.
  */
 public class Main {
     
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.out.println("Verwendung: java Main <eingabedatei.txt>");
+        String filename = null;
+        String engine = SolverRegistry.DEFAULT;
+        int threads = 1;
+        boolean backbone = false;
+        boolean count = false;
+        boolean withStats = false;
+        long timeout = 0;
+        long nodeLimit = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--engine") && i + 1 < args.length) {
+                engine = args[++i];
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--backbone")) {
+                backbone = true;
+            } else if (args[i].equals("--count")) {
+                count = true;
+            } else if (args[i].equals("--stats")) {
+                withStats = true;
+            } else if (args[i].equals("--timeout") && i + 1 < args.length) {
+                timeout = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--nodes") && i + 1 < args.length) {
+                nodeLimit = Long.parseLong(args[++i]);
+            } else {
+                filename = args[i];
+            }
+        }
+        
+        if (filename == null) {
+            System.out.println("Verwendung: java Main [--engine NAME] [--threads N] [--backbone] [--count] [--stats] [--timeout ms] [--nodes N] <eingabedatei.txt>");
+            System.out.println("Solver: " + String.join(", ", SolverRegistry.getNames()));
             System.out.println("Beispiel: java Main tomograph00.txt");
             System.exit(1);
         }
         
-        String filename = args[0];
-        
         try {
             System.out.println("=== Bibertomograph Solver ===");
             System.out.println("Lade Datei: " + filename);
@@ -35,10 +78,83 @@ public class Main {
             System.out.println("Starte Solver...");
             long startTime = System.currentTimeMillis();
             
-            HeuristicSolver solver = new HeuristicSolver(constraints);
+            TomographSolver solver = SolverRegistry.create(engine, constraints);
             solver.setMaxSolutions(100); // Suche bis zu 100 Lösungen
+            solver.setParallelism(threads);
+            solver.setTimeLimit(timeout);
+            solver.setNodeLimit(nodeLimit);
+            SolverStats stats = withStats ? new SolverStats() : null;
+            solver.setStats(stats);
+            
+            if (count) {
+                if (!(solver instanceof HeuristicSolver)) {
+                    System.out.println("--count geht nur mit den heuristic-Solvern, nicht mit " + engine);
+                    System.exit(1);
+                }
+                SolutionCount result = ((HeuristicSolver) solver).countSolutions();
+                long duration = System.currentTimeMillis() - startTime;
+                
+                System.out.println();
+                System.out.println("=== Ergebnisse ===");
+                boolean partial = solver.getStatus().isPartial();
+                System.out.println("Anzahl der Lösungen: " + (partial ? "mindestens " : "") + result.getTotal());
+                System.out.println("Durchsuchte Knoten: " + solver.getNodeCount());
+                System.out.println("Laufzeit: " + duration + " ms");
+                System.out.println();
+                
+                printPartial(solver, result.getTotal().signum() == 0);
+                if (!partial && result.getTotal().signum() == 0) {
+                    System.out.println("Keine Lösung gefunden!");
+                } else if (!partial) {
+                    System.out.println("Anteil der Lösungen, in denen die Zelle gefüllt ist:");
+                    printHeatmap(result.getFillRatios());
+                    System.out.println();
+                    System.out.println("Kombinierte Ausgabe (? = mehrdeutig):");
+                    System.out.println(result.getCombined());
+                }
+                printStats(stats);
+                return;
+            }
+            
+            if (backbone) {
+                Grid combined = solver.solveBackbone();
+                long duration = System.currentTimeMillis() - startTime;
+                
+                System.out.println();
+                System.out.println("=== Ergebnisse ===");
+                System.out.println("Durchsuchte Knoten: " + solver.getNodeCount());
+                System.out.println("Laufzeit: " + duration + " ms");
+                printWinner(solver);
+                System.out.println();
+                
+                boolean partial = printPartial(solver, combined == null);
+                if (combined == null) {
+                    if (!partial) {
+                        System.out.println("Keine Lösung gefunden!");
+                    }
+                } else {
+                    System.out.println("Kombinierte Ausgabe (? = mehrdeutig):");
+                    System.out.println(combined);
+                }
+                printStats(stats);
+                return;
+            }
             
-            List<Grid> solutions = solver.solve();
+            // Lösungen werden direkt kombiniert, nur die ersten 3 werden behalten
+            SolutionCombiner combiner = new SolutionCombiner();
+            List<Grid> firstSolutions = new ArrayList<>();
+            Consumer<Grid> collect = solution -> {
+                combiner.accept(solution);
+                if (firstSolutions.size() < 3) {
+                    firstSolutions.add(solution);
+                }
+            };
+            if (threads > 1) {
+                // Geordnet sammeln, damit das Ergebnis der sequentiellen Suche entspricht
+                solver.solve().forEach(collect);
+            } else {
+                solver.solve(collect);
+            }
             
             long endTime = System.currentTimeMillis();
             long duration = endTime - startTime;
@@ -46,28 +162,32 @@ public class Main {
             // Ergebnisse ausgeben
             System.out.println();
             System.out.println("=== Ergebnisse ===");
-            System.out.println("Gefundene Lösungen: " + solutions.size());
+            System.out.println("Gefundene Lösungen: " + combiner.getCount());
             System.out.println("Durchsuchte Knoten: " + solver.getNodeCount());
             System.out.println("Laufzeit: " + duration + " ms");
+            printWinner(solver);
             System.out.println();
             
-            if (solutions.isEmpty()) {
-                System.out.println("Keine Lösung gefunden!");
-            } else if (solutions.size() == 1) {
-                System.out.println("Eindeutige Lösung:");
-                System.out.println(solutions.get(0));
+            boolean partial = printPartial(solver, combiner.getCount() == 0);
+            if (combiner.getCount() == 0) {
+                if (!partial) {
+                    System.out.println("Keine Lösung gefunden!");
+                }
+            } else if (combiner.getCount() == 1) {
+                System.out.println(partial ? "Bisher gefundene Lösung:" : "Eindeutige Lösung:");
+                System.out.println(firstSolutions.get(0));
             } else {
                 System.out.println("Mehrere Lösungen gefunden. Kombinierte Ausgabe (? = mehrdeutig):");
-                Grid combined = HeuristicSolver.combineSolutions(solutions);
-                System.out.println(combined);
+                System.out.println(combiner.getCombined());
                 
                 System.out.println("Erste 3 Lösungen:");
-                for (int i = 0; i < Math.min(3, solutions.size()); i++) {
+                for (int i = 0; i < firstSolutions.size(); i++) {
                     System.out.println("Lösung " + (i + 1) + ":");
-                    System.out.println(solutions.get(i));
+                    System.out.println(firstSolutions.get(i));
                 }
             }
-            
+            printStats(stats);
+        
         } catch (Exception e) {
             System.err.println("Fehler: " + e.getMessage());
             e.printStackTrace();
@@ -75,6 +195,38 @@ public class Main {
         }
     }
     
+    /**
+     * Meldet einen vorzeitigen Abbruch. Wurde noch keine Lösung gefunden,
+     * werden die Zellen ausgegeben, die schon durch Propagation feststehen.
+     * Gibt true zurück, wenn die Suche abgebrochen wurde.
+     */
+    private static boolean printPartial(TomographSolver solver, boolean noSolution) {
+        TomographSolver.Status status = solver.getStatus();
+        if (!status.isPartial()) {
+            return false;
+        }
+        System.out.println("Suche abgebrochen (" + status + "), das Ergebnis ist unvollständig.");
+        Grid certain = solver.getCertainCells();
+        if (noSolution && certain != null) {
+            System.out.println("Sichere Zellen (? = offen):");
+            System.out.println(certain);
+        }
+        return true;
+    }
+    
+    private static void printWinner(TomographSolver solver) {
+        if (solver instanceof PortfolioSolver) {
+            System.out.println("Schnellster Solver: " + ((PortfolioSolver) solver).getWinnerName());
+        }
+    }
+    
+    private static void printStats(SolverStats stats) {
+        if (stats != null) {
+            System.out.println("=== Statistik ===");
+            System.out.println(stats);
+        }
+    }
+    
     /**
      * Gibt die Heatmap formatiert aus.
      */
@@ -0,0 +1,143 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Transpositionstabelle für Teilprobleme mit fester Speichergrenze; benutzt
+ * als Cache von HeuristicSolver.countSolutions() und als Tabelle der
+ * Teilbäume ohne Lösung in der Suche (siehe setNogoodCache).
+ *
+ * Schlüssel ist ein long-Array, das das Teilproblem vollständig beschreibt
+ * (Components.key()); das erste Element ist ein Zobrist-Hash und wählt den
+ * Bucket, bei einem Treffer wird der ganze Schlüssel verglichen. Eine
+ * Hash-Kollision kann also kein falsches Ergebnis liefern. Wert sind die
+ * Lösungsanzahlen: [0] = alle Lösungen, danach die Anzahl pro Zelle. Ein
+ * Teilproblem ohne Lösung (Nogood) hat den geteilten Wert NOGOOD.
+ *
+ * Je zwei Plätze bilden einen Bucket. Der erste ist gewichtsbevorzugt: er
+ * wird nur durch einen Eintrag mit mindestens so großem Gewicht (offene
+ * Zellen, also Größe des Teilbaums) ersetzt. Alles andere landet im zweiten
+ * Platz, der immer überschrieben wird. So bleiben die teuren Ergebnisse
+ * erhalten, während kleine kommen und gehen.
+ *
+ * Die Speichergrenze gilt für Plätze und Einträge zusammen: die Plätze
+ * bekommen ein Achtel davon, die Einträge (geschätzt mit entryBytes()) den
+ * Rest. Ein Eintrag, der nicht mehr passt, wird nicht gespeichert.
+ *
+ * Zugriffe sind synchronisiert, die Tabelle kann also von parallelen Tasks
+ * gemeinsam benutzt werden.
+ */
+public class NogoodTable {
+    public static final BigInteger[] NOGOOD = {BigInteger.ZERO};
+    
+    private static final int SLOT_BYTES = 24; // zwei Referenzen, Gewicht, Größe
+    
+    private final long[][] keys;
+    private final BigInteger[][] values;
+    private final int[] weights; // Gewicht + 1, 0 = leerer Platz
+    private final int[] bytes;   // geschätzte Größe des Eintrags
+    private final int mask;
+    private final long budget;   // Bytes für Einträge
+    private long used;
+    
+    /**
+     * Legt eine Tabelle mit höchstens megabytes MB an (mindestens ein Bucket).
+     */
+    public NogoodTable(int megabytes) {
+        long total = (long) megabytes * 1024 * 1024;
+        int capacity = 2;
+        while (capacity * 2L * SLOT_BYTES <= total / 8 && capacity < (1 << 30)) {
+            capacity *= 2;
+        }
+        this.keys = new long[capacity][];
+        this.values = new BigInteger[capacity][];
+        this.weights = new int[capacity];
+        this.bytes = new int[capacity];
+        this.mask = capacity - 2;
+        this.budget = total - (long) capacity * SLOT_BYTES;
+    }
+    
+    /**
+     * Gespeicherte Lösungsanzahlen zum Schlüssel oder null, wenn es keinen
+     * Eintrag gibt. Das Array darf nicht verändert werden.
+     */
+    public synchronized BigInteger[] get(long[] key) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : null;
+    }
+    
+    /**
+     * true, wenn ein Eintrag mit diesem Hash (Element 0 des Schlüssels)
+     * existiert. Erst dann lohnt es sich, den ganzen Schlüssel zu bauen.
+     */
+    public synchronized boolean containsHash(long hash) {
+        int bucket = bucket(hash);
+        for (int slot = bucket; slot < bucket + 2; slot++) {
+            if (weights[slot] != 0 && keys[slot][0] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Speichert die Lösungsanzahlen zum Schlüssel; weight ist die Zahl der
+     * offenen Zellen. Gibt true zurück, wenn dafür ein anderer Eintrag
+     * verdrängt wurde. Schlüssel und Wert werden nicht kopiert.
+     */
+    public synchronized boolean put(long[] key, int weight, BigInteger[] value) {
+        int slot = find(key);
+        if (slot < 0) {
+            int bucket = bucket(key[0]);
+            slot = weight + 1 >= weights[bucket] ? bucket : bucket + 1;
+        }
+        int size = entryBytes(key, value);
+        long free = budget - used + bytes[slot];
+        if (size > free) {
+            return false;
+        }
+        boolean evicted = weights[slot] != 0 && !Arrays.equals(keys[slot], key);
+        used += size - bytes[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        weights[slot] = weight + 1;
+        bytes[slot] = size;
+        return evicted;
+    }
+    
+    /**
+     * Anzahl der Plätze.
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+    
+    /**
+     * Geschätzter Speicher eines Eintrags: Array-Köpfe, Schlüssel,
+     * Referenzen und jede Anzahl außer den geteilten Konstanten 0 und 1.
+     */
+    private static int entryBytes(long[] key, BigInteger[] value) {
+        int size = 32 + 8 * key.length + 8 * value.length;
+        if (value != NOGOOD) {
+            for (BigInteger count : value) {
+                if (count != BigInteger.ZERO && count != BigInteger.ONE) {
+                    size += 48;
+                }
+            }
+        }
+        return size;
+    }
+    
+    private int find(long[] key) {
+        int bucket = bucket(key[0]);
+        for (int slot = bucket; slot < bucket + 2; slot++) {
+            if (weights[slot] != 0 && keys[slot][0] == key[0] && Arrays.equals(keys[slot], key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+    
+    private int bucket(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
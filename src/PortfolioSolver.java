@@ -0,0 +1,261 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Lässt mehrere Solver (Engines oder Konfigurationen) gleichzeitig auf
+ * denselben Constraints laufen. Das Ergebnis des ersten Solvers, der ohne
+ * Limit fertig wird, gilt; alle anderen werden dann abgebrochen. Bei jeder
+ * Instanz bestimmt so die schnellste Strategie die Laufzeit.
+ *
+ * Jeder Solver läuft in einem eigenen Thread. Beim Streaming mit
+ * solve(Consumer) gewinnt schon der Solver, der als erster eine Lösung
+ * liefert (oder ohne Lösung fertig wird); nur er ruft den Consumer auf.
+ *
+ * Endet keiner ohne Limit, gilt der Solver mit den meisten Lösungen, bei
+ * solveBackbone() der erste mit einem Ergebnis. Zeit- und Knotenlimit
+ * gelten für jeden Solver einzeln, SolverStats sammelt die Arbeit aller.
+ */
+public class PortfolioSolver implements TomographSolver {
+    private final List<String> names;
+    private final List<TomographSolver> members;
+    private volatile CancellationToken token;
+    private volatile CancellationToken[] memberTokens; // eigene Tokens der laufenden Suche
+    private volatile int winner; // Index des Gewinners, -1 = noch keiner
+    private int chosen;          // Index, dessen Ergebnis zurückgegeben wurde
+    private Status status;
+    private SolverStats stats;
+    
+    public PortfolioSolver(List<String> names, List<TomographSolver> members) {
+        if (members.isEmpty() || names.size() != members.size()) {
+            throw new IllegalArgumentException("Portfolio braucht mindestens einen Solver mit Namen");
+        }
+        this.names = new ArrayList<>(names);
+        this.members = new ArrayList<>(members);
+        this.token = new CancellationToken();
+        this.chosen = 0;
+    }
+    
+    @Override
+    public void setMaxSolutions(int max) {
+        members.forEach(member -> member.setMaxSolutions(max));
+    }
+    
+    @Override
+    public void setTimeLimit(long millis) {
+        members.forEach(member -> member.setTimeLimit(millis));
+    }
+    
+    @Override
+    public void setNodeLimit(long nodes) {
+        members.forEach(member -> member.setNodeLimit(nodes));
+    }
+    
+    /**
+     * Das Token bricht alle Solver des Portfolios ab. Jeder Solver bekommt
+     * zusätzlich ein eigenes Token, damit die Verlierer einzeln abgebrochen
+     * werden können.
+     */
+    @Override
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+    
+    /**
+     * Bricht die laufende Suche aller Solver ab. Das Token bleibt
+     * unberührt, spätere Suchen laufen wieder normal.
+     */
+    @Override
+    public void cancel() {
+        for (int i = 0; i < members.size(); i++) {
+            cancelMember(i);
+        }
+    }
+    
+    @Override
+    public void setStats(SolverStats stats) {
+        this.stats = stats;
+        members.forEach(member -> member.setStats(stats));
+    }
+    
+    @Override
+    public SolverStats getStats() {
+        return stats;
+    }
+    
+    @Override
+    public void setParallelism(int threads) {
+        members.forEach(member -> member.setParallelism(threads));
+    }
+    
+    /**
+     * Name des Solvers, dessen Ergebnis die letzte Suche geliefert hat.
+     */
+    public String getWinnerName() {
+        return names.get(chosen);
+    }
+    
+    @Override
+    public List<Grid> solve() {
+        List<List<Grid>> results = race(index -> members.get(index).solve());
+        if (winner < 0) {
+            for (int i = 0; i < results.size(); i++) {
+                if (size(results.get(i)) > size(results.get(chosen))) {
+                    chosen = i;
+                }
+            }
+        }
+        List<Grid> result = results.get(chosen);
+        return result != null ? result : new ArrayList<>();
+    }
+    
+    @Override
+    public void solve(Consumer<Grid> consumer) {
+        race(index -> {
+            TomographSolver member = members.get(index);
+            member.solve(grid -> {
+                if (claim(index)) {
+                    consumer.accept(grid);
+                } else {
+                    cancelMember(index);
+                }
+            });
+            return null;
+        });
+    }
+    
+    @Override
+    public Grid solveBackbone() {
+        List<Grid> results = race(index -> members.get(index).solveBackbone());
+        if (winner < 0) {
+            for (int i = results.size() - 1; i >= 0; i--) {
+                if (results.get(i) != null) {
+                    chosen = i;
+                }
+            }
+        }
+        return results.get(chosen);
+    }
+    
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+    
+    @Override
+    public Grid getCertainCells() {
+        return members.get(chosen).getCertainCells();
+    }
+    
+    /**
+     * Knoten des Solvers, dessen Ergebnis gilt.
+     */
+    @Override
+    public long getNodeCount() {
+        return members.get(chosen).getNodeCount();
+    }
+    
+    /**
+     * Startet task für jeden Solver (Index in members) in einem eigenen
+     * Thread und wartet, bis alle fertig sind. Wer zuerst ohne Limit endet,
+     * gewinnt (falls nicht schon beim Streaming jemand gewonnen hat) und
+     * bricht die anderen ab. Ohne Gewinner zählt zunächst der erste Solver
+     * ohne Fehler; scheitern alle, wird der erste Fehler weitergeworfen.
+     */
+    private <T> List<T> race(IntFunction<T> task) {
+        winner = -1;
+        chosen = 0;
+        status = null;
+        List<T> results = new ArrayList<>();
+        Throwable[] errors = new Throwable[members.size()];
+        Thread[] threads = new Thread[members.size()];
+        CancellationToken[] tokens = new CancellationToken[members.size()];
+        for (int i = 0; i < members.size(); i++) {
+            results.add(null);
+            tokens[i] = new CancellationToken();
+            members.get(i).setCancellationToken(tokens[i]);
+        }
+        memberTokens = tokens;
+        
+        for (int i = 0; i < members.size(); i++) {
+            int index = i;
+            TomographSolver member = members.get(i);
+            threads[i] = new Thread(() -> {
+                try {
+                    results.set(index, task.apply(index));
+                    if (!member.getStatus().isPartial()) {
+                        claim(index);
+                    }
+                } catch (Throwable e) {
+                    errors[index] = e;
+                }
+            }, "portfolio-" + names.get(i));
+            threads[i].start();
+        }
+        
+        boolean cancelled = false;
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                if (!cancelled && (token.isCancelled() || interrupted)) {
+                    cancelled = true;
+                    cancel();
+                }
+                try {
+                    thread.join(20);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        
+        chosen = winner;
+        for (int i = 0; chosen < 0 && i < members.size(); i++) {
+            if (errors[i] == null) {
+                chosen = i;
+            }
+        }
+        if (chosen < 0) {
+            chosen = 0;
+            throw new RuntimeException("Solver " + names.get(0) + ": " + errors[0].getMessage(), errors[0]);
+        }
+        status = cancelled ? Status.CANCELLED : members.get(chosen).getStatus();
+        return results;
+    }
+    
+    /**
+     * Macht index zum Gewinner, wenn es noch keinen gibt, und bricht die
+     * anderen Solver ab. Gibt true zurück, wenn index der Gewinner ist.
+     */
+    private synchronized boolean claim(int index) {
+        if (winner < 0) {
+            winner = index;
+            for (int i = 0; i < members.size(); i++) {
+                if (i != index) {
+                    cancelMember(i);
+                }
+            }
+        }
+        return winner == index;
+    }
+    
+    /**
+     * Bricht einen Solver über sein Token ab, das wirkt auch, wenn sein
+     * Thread die Suche noch gar nicht begonnen hat.
+     */
+    private void cancelMember(int index) {
+        CancellationToken[] tokens = memberTokens;
+        if (tokens != null) {
+            tokens[index].cancel();
+        }
+        members.get(index).cancel();
+    }
+    
+    private static int size(List<Grid> list) {
+        return list == null ? -1 : list.size();
+    }
+}
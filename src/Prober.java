@@ -0,0 +1,130 @@
+/**
+ * Probing (Singleton-Konsistenz) für die Suche von HeuristicSolver (siehe
+ * HeuristicSolver.setProbing), nur im Trail-Modus.
+ *
+ * Vor der Verzweigung werden für die besten Zellen der Zellauswahl beide
+ * Werte probeweise gesetzt und propagiert. Scheitert ein Wert, bekommt die
+ * Zelle den anderen, scheitern beide, ist der Knoten ohne Lösung; was aus
+ * beiden Werten gleich folgt, wird ebenfalls gesetzt. Ein Guthaben
+ * begrenzt, wie viele Proben die Suche sich leistet.
+ */
+class Prober {
+    // Guthaben: eine Probe (beide Werte einer Zelle) kostet PROBE_COST,
+    // jeder Knoten bringt ein Viertel davon, jede Probe mit Ergebnis acht
+    // Proben; mehr als 256 Proben werden nicht angespart
+    private static final int PROBE_COST = 4;
+    private static final int PROBE_CREDIT_PER_NODE = 1;
+    private static final int PROBE_REWARD = 8 * PROBE_COST;
+    private static final int PROBE_CREDIT_MAX = 256 * PROBE_COST;
+    
+    private final HeuristicSolver solver;
+    private final HeuristicSolver.Search search;
+    private final Trail trail;
+    private final SolverStats stats; // null = keine Messung
+    private final int size;
+    private final int cells;         // Kandidaten pro Knoten
+    
+    // Kandidaten des Knotens (nach Score absteigend) und dahinter die
+    // gemeinsamen Folgerungen; Belegung aus dem ersten probierten Wert
+    // (stamp == epoch)
+    private int[] candidates;
+    private int[] stamp;
+    private int[] value;
+    private int epoch;
+    private int credit = PROBE_CREDIT_MAX;
+    
+    Prober(HeuristicSolver solver, HeuristicSolver.Search search, Trail trail, int size, int cells, SolverStats stats) {
+        this.solver = solver;
+        this.search = search;
+        this.trail = trail;
+        this.size = size;
+        this.cells = cells;
+        this.stats = stats;
+    }
+    
+    /**
+     * Probing am aktuellen Knoten, solange das Guthaben reicht. Gibt false
+     * zurück, wenn eine Zelle mit keinem Wert mehr konsistent ist. Gesetzte
+     * Zellen bleiben bis zum Rücksprung über diesen Knoten.
+     */
+    boolean probe(Grid grid) {
+        credit = Math.min(credit + PROBE_CREDIT_PER_NODE, PROBE_CREDIT_MAX);
+        if (credit < PROBE_COST) {
+            return true;
+        }
+        if (candidates == null) {
+            candidates = new int[cells + size * size];
+            stamp = new int[size * size];
+            value = new int[size * size];
+        }
+        int count = search.best(grid, cells, candidates);
+        for (int i = 0; i < count && credit >= PROBE_COST; i++) {
+            int cell = candidates[i];
+            int row = cell / size;
+            int col = cell % size;
+            if (grid.isAssigned(row, col)) {
+                continue; // inzwischen durch eine frühere Probe gesetzt
+            }
+            credit -= PROBE_COST;
+            
+            // Wert 0 probieren und die Folgerungen merken
+            int mark = trail.mark();
+            epoch++;
+            boolean zero = tryValue(grid, row, col, 0);
+            if (zero) {
+                for (int pos = mark + 1; pos < trail.size(); pos++) {
+                    int other = trail.get(pos);
+                    stamp[other] = epoch;
+                    value[other] = grid.get(other / size, other % size);
+                }
+            }
+            search.undo(grid, mark);
+            
+            // Wert 1 probieren; was beide Werte gleich setzen, folgt sicher
+            boolean one = tryValue(grid, row, col, 1);
+            int common = 0;
+            if (zero && one) {
+                for (int pos = mark + 1; pos < trail.size(); pos++) {
+                    int other = trail.get(pos);
+                    if (stamp[other] == epoch && value[other] == grid.get(other / size, other % size)) {
+                        candidates[common++ + count] = other;
+                    }
+                }
+            }
+            search.undo(grid, mark);
+            if (stats != null) {
+                stats.probe(zero && one ? 0 : 1, common);
+            }
+            
+            if (!zero && !one) {
+                return false;
+            }
+            if (!zero || !one) {
+                search.assign(grid, row, col, zero ? 0 : 1);
+            } else if (common == 0) {
+                continue;
+            }
+            credit = Math.min(credit + PROBE_REWARD, PROBE_CREDIT_MAX);
+            for (int k = 0; k < common; k++) {
+                int other = candidates[count + k];
+                search.assign(grid, other / size, other % size, value[other]);
+            }
+            if (!search.propagate(grid)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Setzt value probeweise und propagiert. Der Aufrufer nimmt die
+     * Zuweisungen danach wieder zurück.
+     */
+    private boolean tryValue(Grid grid, int row, int col, int value) {
+        if (!solver.isValueFeasible(grid, row, col, value)) {
+            return false;
+        }
+        search.assign(grid, row, col, value);
+        return search.propagate(grid);
+    }
+}
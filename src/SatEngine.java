@@ -0,0 +1,704 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Kleiner CDCL-SAT-Solver (conflict-driven clause learning) ohne
+ * Abhängigkeiten, gebaut für die Kodierung in SatSolver.
+ *
+ * - Zwei beobachtete Literale pro Klausel (watched literals)
+ * - 1UIP-Konfliktanalyse mit gelernten Klauseln und Backjumping
+ * - VSIDS-Variablenwahl mit Heap, gespeicherte Phasen
+ * - Neustarts nach der Luby-Folge, Aufräumen gelernter Klauseln nach LBD
+ * - Inkrementelles Lösen: zwischen zwei solve()-Aufrufen dürfen Klauseln
+ *   hinzukommen, Annahmen (assumptions) gelten nur für einen Aufruf
+ *
+ * Literale werden wie im DIMACS-Format übergeben: Variable v (ab 1) als v,
+ * ihre Negation als -v. Intern ist ein Literal 2 * (v - 1) + Vorzeichen.
+ */
+public class SatEngine {
+    
+    public enum Result {
+        SAT,
+        UNSAT,
+        UNKNOWN // durch stop abgebrochen
+    }
+    
+    private static final int UNDEF = -1;
+    private static final int RESTART_UNIT = 100; // Konflikte pro Luby-Einheit
+    private static final int STOP_CHECK_INTERVAL = 256;
+    
+    private static final class Clause {
+        final int[] lits;
+        final boolean learnt;
+        int lbd;
+        double activity;
+        
+        Clause(int[] lits, boolean learnt) {
+            this.lits = lits;
+            this.learnt = learnt;
+        }
+    }
+    
+    private int vars;
+    private boolean ok = true; // false = ohne Annahmen unerfüllbar
+    
+    // Pro Variable
+    private int[] assigns = new int[0];    // UNDEF, 0 oder 1
+    private int[] level = new int[0];
+    private Clause[] reason = new Clause[0];
+    private boolean[] polarity = new boolean[0]; // zuletzt belegter Wert
+    private double[] activity = new double[0];
+    private boolean[] seen = new boolean[0];
+    private int[] model = new int[0];
+    
+    // Pro Literal: Klauseln, die das Literal an Position 0 oder 1 beobachten
+    private Clause[][] watches = new Clause[0][];
+    private int[] watchCount = new int[0];
+    
+    private final List<Clause> clauses = new ArrayList<>();
+    private final List<Clause> learnts = new ArrayList<>();
+    
+    private int[] trail = new int[0];
+    private int trailSize;
+    private int qhead;
+    private int[] trailLim = new int[16]; // Trail-Position pro Entscheidungsebene
+    private int decisionLevel;
+    
+    // VSIDS: Heap der Variablen nach Aktivität
+    private int[] heap = new int[0];
+    private int heapSize;
+    private int[] heapIndex = new int[0]; // -1 = nicht im Heap
+    private double varInc = 1;
+    private double clauseInc = 1;
+    private double maxLearnts;
+    
+    private BooleanSupplier stop;
+    private long decisions;
+    private long conflicts;
+    private long propagations;
+    private long restarts;
+    
+    // Wiederverwendete Puffer der Konfliktanalyse
+    private int[] learntBuffer = new int[16];
+    private int[] clearBuffer = new int[16];
+    private int[] levelStamp = new int[0];
+    private int stampCounter;
+    
+    /**
+     * Legt eine neue Variable an und gibt ihre Nummer (ab 1) zurück.
+     */
+    public int newVariable() {
+        int v = vars++;
+        if (v == assigns.length) {
+            int capacity = Math.max(16, v * 2);
+            assigns = Arrays.copyOf(assigns, capacity);
+            level = Arrays.copyOf(level, capacity);
+            reason = Arrays.copyOf(reason, capacity);
+            polarity = Arrays.copyOf(polarity, capacity);
+            activity = Arrays.copyOf(activity, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            trail = Arrays.copyOf(trail, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+            heapIndex = Arrays.copyOf(heapIndex, capacity);
+            levelStamp = Arrays.copyOf(levelStamp, capacity + 1);
+            watches = Arrays.copyOf(watches, 2 * capacity);
+            watchCount = Arrays.copyOf(watchCount, 2 * capacity);
+        }
+        assigns[v] = UNDEF;
+        heapIndex[v] = -1;
+        watches[2 * v] = new Clause[4];
+        watches[2 * v + 1] = new Clause[4];
+        heapInsert(v);
+        return v + 1;
+    }
+    
+    /**
+     * false, wenn das Problem schon ohne Suche unerfüllbar ist.
+     */
+    public boolean isConsistent() {
+        return ok;
+    }
+    
+    public int getVariableCount() {
+        return vars;
+    }
+    
+    public int getClauseCount() {
+        return clauses.size();
+    }
+    
+    /**
+     * Setzt den Wert, den die Variable bei ihrer ersten Entscheidung bekommt.
+     */
+    public void setPhase(int variable, boolean value) {
+        polarity[variable - 1] = value;
+    }
+    
+    /**
+     * Wird regelmäßig während der Suche abgefragt; liefert er true, endet
+     * solve() mit UNKNOWN.
+     */
+    public void setStop(BooleanSupplier stop) {
+        this.stop = stop;
+    }
+    
+    /**
+     * Fügt eine Klausel (Disjunktion der Literale) dauerhaft hinzu.
+     * Gibt false zurück, wenn das Problem damit unerfüllbar ist.
+     */
+    public boolean addClause(int... literals) {
+        if (!ok) {
+            return false;
+        }
+        int[] lits = new int[literals.length];
+        int count = 0;
+        for (int literal : literals) {
+            int lit = toInternal(literal);
+            int value = value(lit);
+            if (value == 1) {
+                return true; // auf Ebene 0 schon erfüllt
+            }
+            if (value == 0) {
+                continue;
+            }
+            boolean duplicate = false;
+            for (int k = 0; k < count; k++) {
+                if (lits[k] == lit) {
+                    duplicate = true;
+                } else if (lits[k] == (lit ^ 1)) {
+                    return true; // enthält x und nicht x
+                }
+            }
+            if (!duplicate) {
+                lits[count++] = lit;
+            }
+        }
+        
+        if (count == 0) {
+            ok = false;
+        } else if (count == 1) {
+            enqueue(lits[0], null);
+            ok = propagate() == null;
+        } else {
+            Clause clause = new Clause(Arrays.copyOf(lits, count), false);
+            clauses.add(clause);
+            attach(clause);
+        }
+        return ok;
+    }
+    
+    /**
+     * Löst ohne Annahmen.
+     */
+    public Result solve() {
+        return solve(new int[0]);
+    }
+    
+    /**
+     * Löst unter der Annahme, dass alle übergebenen Literale wahr sind.
+     * Gelernte Klauseln bleiben für spätere Aufrufe erhalten; UNSAT unter
+     * Annahmen macht das Problem selbst nicht unerfüllbar.
+     */
+    public Result solve(int... assumptions) {
+        if (!ok) {
+            return Result.UNSAT;
+        }
+        int[] assume = new int[assumptions.length];
+        for (int i = 0; i < assume.length; i++) {
+            assume[i] = toInternal(assumptions[i]);
+        }
+        if (maxLearnts == 0) {
+            maxLearnts = Math.max(2000, clauses.size() / 3.0);
+        }
+        
+        Result result = null;
+        for (int run = 0; result == null; run++) {
+            result = search(luby(run) * RESTART_UNIT, assume);
+            if (result == null) {
+                restarts++;
+            }
+        }
+        if (result == Result.SAT) {
+            model = Arrays.copyOf(assigns, vars);
+        }
+        cancelUntil(0);
+        return result;
+    }
+    
+    /**
+     * Wert der Variable in der letzten gefundenen Belegung.
+     */
+    public boolean modelValue(int variable) {
+        return model[variable - 1] == 1;
+    }
+    
+    /**
+     * Wert der Variable auf Ebene 0 (ohne Annahmen bewiesen): 1, 0 oder -1.
+     */
+    public int fixedValue(int variable) {
+        int v = variable - 1;
+        return level[v] == 0 ? assigns[v] : UNDEF;
+    }
+    
+    public long getDecisions() {
+        return decisions;
+    }
+    
+    public long getConflicts() {
+        return conflicts;
+    }
+    
+    public long getPropagations() {
+        return propagations;
+    }
+    
+    public long getRestarts() {
+        return restarts;
+    }
+    
+    public int getLearntCount() {
+        return learnts.size();
+    }
+    
+    /**
+     * Eine Runde bis zum Neustart. Gibt null zurück, wenn das Konfliktbudget
+     * aufgebraucht ist.
+     */
+    private Result search(long budget, int[] assume) {
+        long roundConflicts = 0;
+        long steps = 0;
+        while (true) {
+            if (++steps % STOP_CHECK_INTERVAL == 0 && stop != null && stop.getAsBoolean()) {
+                return Result.UNKNOWN;
+            }
+            Clause conflict = propagate();
+            if (conflict != null) {
+                conflicts++;
+                roundConflicts++;
+                if (decisionLevel == 0) {
+                    ok = false;
+                    return Result.UNSAT;
+                }
+                int length = analyze(conflict);
+                cancelUntil(backjumpLevel(length));
+                int[] lits = Arrays.copyOf(learntBuffer, length);
+                if (length == 1) {
+                    enqueue(lits[0], null);
+                } else {
+                    Clause learnt = new Clause(lits, true);
+                    learnt.lbd = computeLbd(lits);
+                    learnts.add(learnt);
+                    attach(learnt);
+                    bumpClause(learnt);
+                    enqueue(lits[0], learnt);
+                }
+                varInc /= 0.95;
+                clauseInc /= 0.999;
+                continue;
+            }
+            
+            if (roundConflicts >= budget) {
+                cancelUntil(0);
+                return null;
+            }
+            if (learnts.size() - trailSize >= maxLearnts) {
+                reduceLearnts();
+            }
+            
+            int next = -1;
+            while (decisionLevel < assume.length) {
+                int lit = assume[decisionLevel];
+                int value = value(lit);
+                if (value == 1) {
+                    newDecisionLevel(); // Annahme gilt schon, leere Ebene
+                } else if (value == 0) {
+                    return Result.UNSAT; // Annahmen widersprechen sich
+                } else {
+                    next = lit;
+                    break;
+                }
+            }
+            if (next == -1) {
+                next = pickBranch();
+                if (next == -1) {
+                    return Result.SAT;
+                }
+                decisions++;
+            }
+            newDecisionLevel();
+            enqueue(next, null);
+        }
+    }
+    
+    /**
+     * Unit-Propagation über die beobachteten Literale. Gibt die
+     * widersprüchliche Klausel zurück oder null.
+     */
+    private Clause propagate() {
+        Clause conflict = null;
+        while (qhead < trailSize) {
+            int falseLit = trail[qhead++] ^ 1;
+            propagations++;
+            Clause[] list = watches[falseLit];
+            int count = watchCount[falseLit];
+            int i = 0;
+            int j = 0;
+            while (i < count) {
+                Clause clause = list[i++];
+                int[] lits = clause.lits;
+                if (lits[0] == falseLit) {
+                    lits[0] = lits[1];
+                    lits[1] = falseLit;
+                }
+                int first = lits[0];
+                if (value(first) == 1) {
+                    list[j++] = clause;
+                    continue;
+                }
+                
+                // Neues nicht falsches Literal zum Beobachten suchen
+                boolean moved = false;
+                for (int k = 2; k < lits.length; k++) {
+                    if (value(lits[k]) != 0) {
+                        lits[1] = lits[k];
+                        lits[k] = falseLit;
+                        watch(lits[1], clause);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                
+                list[j++] = clause;
+                if (value(first) == 0) {
+                    conflict = clause;
+                    qhead = trailSize;
+                    while (i < count) {
+                        list[j++] = list[i++];
+                    }
+                } else {
+                    enqueue(first, clause);
+                }
+            }
+            watchCount[falseLit] = j;
+        }
+        return conflict;
+    }
+    
+    /**
+     * 1UIP-Analyse: schreibt die gelernte Klausel nach learntBuffer (das
+     * bestätigende Literal an Position 0) und gibt ihre Länge zurück.
+     */
+    private int analyze(Clause conflict) {
+        int length = 1; // Position 0 für das UIP-Literal
+        int pathCount = 0;
+        int lit = -1;
+        int index = trailSize - 1;
+        Clause clause = conflict;
+        
+        do {
+            if (clause.learnt) {
+                bumpClause(clause);
+            }
+            int[] lits = clause.lits;
+            for (int k = lit == -1 ? 0 : 1; k < lits.length; k++) {
+                int q = lits[k];
+                int v = q >> 1;
+                if (!seen[v] && level[v] > 0) {
+                    bumpVariable(v);
+                    seen[v] = true;
+                    if (level[v] >= decisionLevel) {
+                        pathCount++;
+                    } else {
+                        if (length == learntBuffer.length) {
+                            learntBuffer = Arrays.copyOf(learntBuffer, length * 2);
+                        }
+                        learntBuffer[length++] = q;
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            lit = trail[index--];
+            clause = reason[lit >> 1];
+            seen[lit >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learntBuffer[0] = lit ^ 1;
+        
+        // Literale entfernen, deren Grund schon ganz in der Klausel steckt
+        if (clearBuffer.length < length) {
+            clearBuffer = new int[learntBuffer.length];
+        }
+        System.arraycopy(learntBuffer, 0, clearBuffer, 0, length);
+        int kept = 1;
+        for (int k = 1; k < length; k++) {
+            if (!isRedundant(learntBuffer[k] >> 1)) {
+                learntBuffer[kept++] = learntBuffer[k];
+            }
+        }
+        for (int k = 1; k < length; k++) {
+            seen[clearBuffer[k] >> 1] = false;
+        }
+        return kept;
+    }
+    
+    private boolean isRedundant(int v) {
+        Clause r = reason[v];
+        if (r == null) {
+            return false;
+        }
+        for (int k = 1; k < r.lits.length; k++) {
+            int u = r.lits[k] >> 1;
+            if (!seen[u] && level[u] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Höchste Ebene unter den übrigen Literalen; das Literal dieser Ebene
+     * kommt an Position 1, damit es beobachtet wird.
+     */
+    private int backjumpLevel(int length) {
+        if (length == 1) {
+            return 0;
+        }
+        int max = 1;
+        for (int k = 2; k < length; k++) {
+            if (level[learntBuffer[k] >> 1] > level[learntBuffer[max] >> 1]) {
+                max = k;
+            }
+        }
+        int lit = learntBuffer[max];
+        learntBuffer[max] = learntBuffer[1];
+        learntBuffer[1] = lit;
+        return level[lit >> 1];
+    }
+    
+    /**
+     * Anzahl verschiedener Entscheidungsebenen in der Klausel (LBD).
+     */
+    private int computeLbd(int[] lits) {
+        stampCounter++;
+        int lbd = 0;
+        for (int lit : lits) {
+            int l = level[lit >> 1];
+            if (l >= levelStamp.length) {
+                levelStamp = Arrays.copyOf(levelStamp, l * 2 + 1);
+            }
+            if (levelStamp[l] != stampCounter) {
+                levelStamp[l] = stampCounter;
+                lbd++;
+            }
+        }
+        return lbd;
+    }
+    
+    /**
+     * Entfernt die schlechtere Hälfte der gelernten Klauseln (hohe LBD, wenig
+     * Aktivität). Klauseln mit LBD 2 und Gründe aktueller Belegungen bleiben.
+     */
+    private void reduceLearnts() {
+        learnts.sort((a, b) -> a.lbd != b.lbd ? Integer.compare(b.lbd, a.lbd) : Double.compare(a.activity, b.activity));
+        int limit = learnts.size() / 2;
+        List<Clause> kept = new ArrayList<>(learnts.size());
+        for (int i = 0; i < learnts.size(); i++) {
+            Clause clause = learnts.get(i);
+            if (i < limit && clause.lbd > 2 && !isLocked(clause)) {
+                continue;
+            }
+            kept.add(clause);
+        }
+        learnts.clear();
+        learnts.addAll(kept);
+        maxLearnts *= 1.1;
+        
+        Arrays.fill(watchCount, 0, 2 * vars, 0);
+        for (Clause clause : clauses) {
+            attach(clause);
+        }
+        for (Clause clause : learnts) {
+            attach(clause);
+        }
+    }
+    
+    private boolean isLocked(Clause clause) {
+        int v = clause.lits[0] >> 1;
+        return reason[v] == clause && value(clause.lits[0]) == 1;
+    }
+    
+    private int pickBranch() {
+        while (heapSize > 0) {
+            int v = heapRemoveMax();
+            if (assigns[v] == UNDEF) {
+                return 2 * v + (polarity[v] ? 0 : 1);
+            }
+        }
+        return -1;
+    }
+    
+    private void newDecisionLevel() {
+        if (decisionLevel == trailLim.length) {
+            trailLim = Arrays.copyOf(trailLim, decisionLevel * 2);
+        }
+        trailLim[decisionLevel++] = trailSize;
+    }
+    
+    private void cancelUntil(int target) {
+        if (decisionLevel <= target) {
+            return;
+        }
+        for (int i = trailSize - 1; i >= trailLim[target]; i--) {
+            int v = trail[i] >> 1;
+            polarity[v] = assigns[v] == 1;
+            assigns[v] = UNDEF;
+            reason[v] = null;
+            if (heapIndex[v] < 0) {
+                heapInsert(v);
+            }
+        }
+        trailSize = trailLim[target];
+        qhead = trailSize;
+        decisionLevel = target;
+    }
+    
+    private void enqueue(int lit, Clause from) {
+        int v = lit >> 1;
+        assigns[v] = (lit & 1) ^ 1;
+        level[v] = decisionLevel;
+        reason[v] = from;
+        trail[trailSize++] = lit;
+    }
+    
+    /**
+     * 1 = wahr, 0 = falsch, UNDEF = offen.
+     */
+    private int value(int lit) {
+        int a = assigns[lit >> 1];
+        return a == UNDEF ? UNDEF : a ^ (lit & 1);
+    }
+    
+    private void attach(Clause clause) {
+        watch(clause.lits[0], clause);
+        watch(clause.lits[1], clause);
+    }
+    
+    private void watch(int lit, Clause clause) {
+        Clause[] list = watches[lit];
+        if (watchCount[lit] == list.length) {
+            list = watches[lit] = Arrays.copyOf(list, list.length * 2);
+        }
+        list[watchCount[lit]++] = clause;
+    }
+    
+    private static int toInternal(int literal) {
+        return literal > 0 ? 2 * (literal - 1) : 2 * (-literal - 1) + 1;
+    }
+    
+    /**
+     * Luby-Folge 1, 1, 2, 1, 1, 2, 4, ... für die Neustart-Abstände.
+     */
+    private static long luby(int i) {
+        int size = 1;
+        int seq = 0;
+        while (size < i + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        int x = i;
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            seq--;
+            x = x % size;
+        }
+        return 1L << seq;
+    }
+    
+    // --- Aktivitäten ---
+    
+    private void bumpVariable(int v) {
+        activity[v] += varInc;
+        if (activity[v] > 1e100) {
+            for (int u = 0; u < vars; u++) {
+                activity[u] *= 1e-100;
+            }
+            varInc *= 1e-100;
+        }
+        if (heapIndex[v] >= 0) {
+            heapUp(heapIndex[v]);
+        }
+    }
+    
+    private void bumpClause(Clause clause) {
+        clause.activity += clauseInc;
+        if (clause.activity > 1e20) {
+            for (Clause learnt : learnts) {
+                learnt.activity *= 1e-20;
+            }
+            clauseInc *= 1e-20;
+        }
+    }
+    
+    // --- Heap nach Aktivität (Maximum oben) ---
+    
+    private void heapInsert(int v) {
+        heap[heapSize] = v;
+        heapIndex[v] = heapSize;
+        heapUp(heapSize++);
+    }
+    
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            heapDown(0);
+        }
+        return top;
+    }
+    
+    private void heapUp(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activity[heap[parent]] >= activity[v]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+    
+    private void heapDown(int i) {
+        int v = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) {
+                child++;
+            }
+            if (activity[heap[child]] <= activity[v]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+}
@@ -0,0 +1,393 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Löst das Bibertomograph-Problem als SAT-Problem mit SatEngine.
+ *
+ * Jede Zelle ist eine Variable. Jede Liniensumme ist eine
+ * Kardinalitätsbedingung "genau s von k Zellen" und wird als Totalizer
+ * kodiert: ein Binärbaum von Zählern, deren Ausgang i bedeutet "mindestens
+ * i Zellen darunter sind gefüllt". Gezählt wird nur bis s + 1, die Wurzel
+ * erzwingt Ausgang s und verbietet Ausgang s + 1.
+ *
+ * Weitere Lösungen werden mit Sperrklauseln gegen die bisherigen gesucht.
+ * solveBackbone() löst dagegen inkrementell mit Annahmen: für jede offene
+ * Zelle eine Suche mit dem entgegengesetzten Wert, gelernte Klauseln
+ * bleiben dabei erhalten. Die Reihenfolge der Lösungen ist eine andere als
+ * bei HeuristicSolver; bei vollständiger Suche ist die kombinierte Ausgabe
+ * dieselbe.
+ */
+public class SatSolver implements TomographSolver {
+    private final Constraints constraints;
+    private final int size;
+    private int maxSolutions;
+    private long timeLimit;  // Millisekunden, 0 = unbegrenzt
+    private long nodeLimit;  // 0 = unbegrenzt
+    private long deadline;
+    private long nodeBase;   // Entscheidungen der Engine vor der aktuellen Suche
+    private Thread caller;
+    private volatile CancellationToken token;
+    private volatile Status stopReason;
+    private Status status;
+    private Grid certain;
+    private SatEngine engine;
+    private SolverStats stats; // null = keine Messung
+    
+    public SatSolver(Constraints constraints) {
+        this.constraints = constraints;
+        this.size = constraints.getSize();
+        this.maxSolutions = 100;
+        this.token = new CancellationToken();
+    }
+    
+    @Override
+    public void setMaxSolutions(int max) {
+        this.maxSolutions = max;
+    }
+    
+    @Override
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis;
+    }
+    
+    /**
+     * Begrenzt die Anzahl der Entscheidungen jeder folgenden Suche (0 = unbegrenzt).
+     */
+    @Override
+    public void setNodeLimit(long nodes) {
+        this.nodeLimit = nodes;
+    }
+    
+    /**
+     * Setzt das Token, über das laufende Suchen abgebrochen werden.
+     */
+    @Override
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+    
+    /**
+     * Bricht die laufende Suche ab, das Token bleibt unberührt (siehe
+     * HeuristicSolver.cancel()).
+     */
+    @Override
+    public void cancel() {
+        stopReason = Status.CANCELLED;
+    }
+    
+    /**
+     * Nach jeder Suche werden Entscheidungen als Knoten, Konflikte als
+     * Rücknahmen, propagierte Literale als Propagationen und die Neustarts
+     * eingetragen.
+     */
+    @Override
+    public void setStats(SolverStats stats) {
+        this.stats = stats;
+    }
+    
+    @Override
+    public SolverStats getStats() {
+        return stats;
+    }
+    
+    /**
+     * Die SAT-Suche läuft immer in einem Thread.
+     */
+    @Override
+    public void setParallelism(int threads) {
+    }
+    
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+    
+    @Override
+    public Grid getCertainCells() {
+        return certain;
+    }
+    
+    /**
+     * Anzahl der Entscheidungen der Engine in der letzten Suche.
+     */
+    @Override
+    public long getNodeCount() {
+        return engine == null ? 0 : engine.getDecisions() - nodeBase;
+    }
+    
+    /**
+     * Die Engine der letzten Suche (für Zähler wie Konflikte und Neustarts).
+     */
+    public SatEngine getEngine() {
+        return engine;
+    }
+    
+    @Override
+    public List<Grid> solve() {
+        List<Grid> found = new ArrayList<>();
+        solve(found::add);
+        return found;
+    }
+    
+    /**
+     * Übergibt jede Lösung sofort an den Consumer, höchstens maxSolutions.
+     * Nach jeder Lösung wird sie durch eine Sperrklausel ausgeschlossen.
+     */
+    @Override
+    public void solve(Consumer<Grid> consumer) {
+        start();
+        int count = 0;
+        while (count < maxSolutions) {
+            SatEngine.Result result = engine.solve();
+            if (result != SatEngine.Result.SAT) {
+                break;
+            }
+            Grid solution = model();
+            count++;
+            consumer.accept(solution);
+            
+            int[] block = new int[size * size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    int v = cell(i, j);
+                    block[i * size + j] = solution.get(i, j) == 1 ? -v : v;
+                }
+            }
+            if (!engine.addClause(block) || stopped()) {
+                break;
+            }
+        }
+        if (stopReason != null) {
+            status = stopReason;
+        } else if (count >= maxSolutions && maxSolutions > 0) {
+            status = Status.SOLUTION_LIMIT;
+        } else {
+            status = Status.COMPLETE;
+        }
+        record();
+    }
+    
+    /**
+     * Backbone mit Annahmen: nach der ersten Lösung wird für jede offene
+     * Zelle unter der Annahme des anderen Werts gelöst. UNSAT beweist den
+     * Wert (er wird als Einheitsklausel hinzugefügt), SAT liefert eine
+     * zweite Lösung, deren abweichende Zellen alle mehrdeutig sind.
+     */
+    @Override
+    public Grid solveBackbone() {
+        start();
+        SatEngine.Result result = engine.solve();
+        if (result != SatEngine.Result.SAT) {
+            status = stopReason != null ? stopReason : Status.COMPLETE;
+            record();
+            return null;
+        }
+        Grid first = model();
+        
+        boolean[][] ambiguous = new boolean[size][size];
+        for (int i = 0; i < size && stopReason == null; i++) {
+            for (int j = 0; j < size; j++) {
+                int v = cell(i, j);
+                if (ambiguous[i][j] || engine.fixedValue(v) != -1) {
+                    continue;
+                }
+                int literal = first.get(i, j) == 1 ? v : -v;
+                result = engine.solve(-literal);
+                if (result == SatEngine.Result.UNKNOWN) {
+                    break;
+                }
+                if (result == SatEngine.Result.UNSAT) {
+                    engine.addClause(literal);
+                } else {
+                    for (int r = 0; r < size; r++) {
+                        for (int c = 0; c < size; c++) {
+                            if (engine.modelValue(cell(r, c)) != (first.get(r, c) == 1)) {
+                                ambiguous[r][c] = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        
+        certain = fixedCells();
+        status = stopReason != null ? stopReason : Status.COMPLETE;
+        record();
+        Grid combined = first.copy();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (ambiguous[i][j] || (stopReason != null && certain.get(i, j) == -1)) {
+                    combined.set(i, j, -1);
+                }
+            }
+        }
+        return combined;
+    }
+    
+    /**
+     * Legt die Engine an, kodiert alle Linien und setzt die Limits zurück.
+     * Die Startphase jeder Zelle kommt aus der Heatmap.
+     */
+    private void start() {
+        stopReason = null;
+        status = null;
+        caller = Thread.currentThread();
+        deadline = System.nanoTime() + timeLimit * 1000000;
+        
+        engine = new SatEngine();
+        for (int i = 0; i < size * size; i++) {
+            engine.newVariable();
+        }
+        double[][] heatmap = constraints.computeHeatmap();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                engine.setPhase(cell(i, j), heatmap[i][j] >= 0.5);
+            }
+        }
+        
+        Grid lines = new Grid(size);
+        for (int type = 0; type < Grid.LINE_TYPES; type++) {
+            for (int index = 0; index < lines.getLineCount(type); index++) {
+                int start = lines.getLineStart(type, index);
+                int length = lines.getLineLength(type, index);
+                int[] cells = new int[length];
+                for (int pos = 0; pos < length; pos++) {
+                    cells[pos] = cell(lines.getCellRow(type, index, start + pos), lines.getCellCol(type, index, start + pos));
+                }
+                encodeExactly(cells, constraints.getLineSum(type, index));
+            }
+        }
+        engine.setStop(this::stopped);
+        nodeBase = engine.getDecisions();
+        certain = engine.isConsistent() ? fixedCells() : null;
+    }
+    
+    /**
+     * Kodiert "genau sum der Variablen sind wahr".
+     */
+    private void encodeExactly(int[] vars, int sum) {
+        if (sum < 0 || sum > vars.length) {
+            engine.addClause(); // leere Klausel: unerfüllbar
+            return;
+        }
+        if (sum == 0 || sum == vars.length) {
+            for (int v : vars) {
+                engine.addClause(sum == 0 ? -v : v);
+            }
+            return;
+        }
+        int[] out = totalizer(vars, 0, vars.length, sum + 1);
+        engine.addClause(out[sum - 1]);
+        if (out.length > sum) {
+            engine.addClause(-out[sum]);
+        }
+    }
+    
+    /**
+     * Baut den Totalizer für vars[from..to) und gibt seine Ausgänge zurück:
+     * out[i] ist wahr genau dann, wenn mindestens i + 1 Eingänge wahr sind.
+     * Es werden höchstens cap Ausgänge angelegt.
+     */
+    private int[] totalizer(int[] vars, int from, int to, int cap) {
+        if (to - from == 1) {
+            return new int[]{vars[from]};
+        }
+        int mid = (from + to) >>> 1;
+        int[] a = totalizer(vars, from, mid, cap);
+        int[] b = totalizer(vars, mid, to, cap);
+        int[] out = new int[Math.min(a.length + b.length, cap)];
+        for (int k = 0; k < out.length; k++) {
+            out[k] = engine.newVariable();
+        }
+        
+        // Mindestens i aus a und j aus b => mindestens i + j
+        for (int i = 0; i <= a.length; i++) {
+            for (int j = 0; j <= b.length; j++) {
+                if (i + j == 0) {
+                    continue;
+                }
+                int t = Math.min(i + j, out.length);
+                addClause(i > 0 ? -a[i - 1] : 0, j > 0 ? -b[j - 1] : 0, out[t - 1]);
+            }
+        }
+        // Mindestens i + j + 1 => mehr als i aus a oder mehr als j aus b.
+        // Fehlt a[i] (i = a.length), kann a nicht mehr liefern; das gilt auch
+        // für gekappte Zähler, weil dann i + j + 1 über cap liegt.
+        for (int i = 0; i <= a.length; i++) {
+            for (int j = 0; j <= b.length; j++) {
+                int t = i + j + 1;
+                if (t > out.length) {
+                    continue;
+                }
+                addClause(-out[t - 1], i < a.length ? a[i] : 0, j < b.length ? b[j] : 0);
+            }
+        }
+        return out;
+    }
+    
+    /**
+     * Fügt eine Klausel aus bis zu drei Literalen hinzu, 0 = kein Literal.
+     */
+    private void addClause(int x, int y, int z) {
+        int[] lits = new int[3];
+        int count = 0;
+        for (int lit : new int[]{x, y, z}) {
+            if (lit != 0) {
+                lits[count++] = lit;
+            }
+        }
+        engine.addClause(Arrays.copyOf(lits, count));
+    }
+    
+    private void record() {
+        if (stats != null) {
+            stats.satRun(getNodeCount(), engine.getConflicts(), engine.getPropagations(), engine.getRestarts());
+        }
+    }
+    
+    private boolean stopped() {
+        if (stopReason != null) {
+            return true;
+        }
+        if (token.isCancelled() || caller.isInterrupted()) {
+            stopReason = Status.CANCELLED;
+        } else if (timeLimit > 0 && System.nanoTime() - deadline >= 0) {
+            stopReason = Status.TIMEOUT;
+        } else if (nodeLimit > 0 && engine.getDecisions() - nodeBase >= nodeLimit) {
+            stopReason = Status.NODE_LIMIT;
+        }
+        return stopReason != null;
+    }
+    
+    private int cell(int row, int col) {
+        return row * size + col + 1;
+    }
+    
+    private Grid model() {
+        Grid grid = new Grid(size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                grid.set(i, j, engine.modelValue(cell(i, j)) ? 1 : 0);
+            }
+        }
+        return grid;
+    }
+    
+    /**
+     * Zellen, die die Engine ohne Annahmen bewiesen hat (offen = -1).
+     */
+    private Grid fixedCells() {
+        Grid grid = new Grid(size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int value = engine.fixedValue(cell(i, j));
+                if (value != -1) {
+                    grid.set(i, j, value);
+                }
+            }
+        }
+        return grid;
+    }
+}
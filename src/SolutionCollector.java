@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Thread-sichere Sammlung der gefundenen Lösungen mit Obergrenze.
+ * 
+ * Jede Lösung wird mit ihrem Suchpfad gespeichert (Index des probierten Werts
+ * pro Entscheidungsebene). Behalten werden immer die Lösungen mit den
+ * kleinsten Pfaden, also genau die, die eine sequentielle Tiefensuche zuerst
+ * finden würde - auch wenn parallele Tasks sie in anderer Reihenfolge liefern.
+ * 
+ * Mit einem Consumer werden die Lösungen stattdessen sofort weitergereicht
+ * und nicht gespeichert. Der Consumer wird nie gleichzeitig aufgerufen.
+ * 
+ * Mit Symmetry sind die gefundenen Lösungen kanonisch (siehe Symmetry) und
+ * stehen jeweils für ihre ganze Bahn: geliefert und gezählt werden alle
+ * Bilder, jede kanonische Lösung direkt gefolgt von ihren Bildern.
+ */
+public class SolutionCollector {
+    private final int maxSolutions;
+    private final TreeMap<int[], List<Grid>> solutions; // Bahn pro Pfad
+    private final Consumer<Grid> sink; // null = Lösungen speichern
+    private final Symmetry symmetry;   // null = keine Symmetriebrechung
+    private int delivered;
+    private int stored;                // Lösungen in allen gespeicherten Bahnen
+    private volatile int[] lastKey; // größter behaltener Pfad, sobald voll
+    
+    public SolutionCollector(int maxSolutions) {
+        this(maxSolutions, null, null);
+    }
+    
+    public SolutionCollector(int maxSolutions, Consumer<Grid> sink) {
+        this(maxSolutions, sink, null);
+    }
+    
+    public SolutionCollector(int maxSolutions, Consumer<Grid> sink, Symmetry symmetry) {
+        this.maxSolutions = maxSolutions;
+        this.solutions = new TreeMap<>(Arrays::compare);
+        this.sink = sink;
+        this.symmetry = symmetry;
+        this.delivered = 0;
+        this.stored = 0;
+        this.lastKey = maxSolutions <= 0 ? new int[0] : null;
+    }
+    
+    /**
+     * Fügt eine Lösung mit dem Pfad path[0..depth) hinzu.
+     */
+    public synchronized void add(int[] path, int depth, Grid grid) {
+        if (isClosed(path, depth)) {
+            return;
+        }
+        List<Grid> orbit = symmetry != null ? symmetry.orbit(grid) : List.of(grid);
+        if (sink != null) {
+            for (Grid image : orbit) {
+                if (delivered >= maxSolutions) {
+                    break;
+                }
+                delivered++;
+                if (delivered >= maxSolutions) {
+                    close();
+                }
+                sink.accept(image);
+            }
+            return;
+        }
+        solutions.put(Arrays.copyOf(path, depth), orbit);
+        stored += orbit.size();
+        // Letzte Bahn verwerfen, solange die übrigen das Limit schon füllen
+        while (stored - solutions.lastEntry().getValue().size() >= maxSolutions) {
+            stored -= solutions.pollLastEntry().getValue().size();
+        }
+        if (stored >= maxSolutions) {
+            lastKey = solutions.lastKey();
+        }
+    }
+    
+    /**
+     * Prüft ob der Teilbaum unter path[0..depth) übersprungen werden kann:
+     * Das Limit ist erreicht und alle behaltenen Lösungen liegen in
+     * Suchreihenfolge vor diesem Teilbaum.
+     */
+    public boolean isClosed(int[] path, int depth) {
+        int[] last = lastKey;
+        if (last == null) {
+            return false;
+        }
+        int common = Math.min(depth, last.length);
+        for (int i = 0; i < common; i++) {
+            if (path[i] != last[i]) {
+                return path[i] > last[i];
+            }
+        }
+        // Ein Pfad ist Präfix des anderen: nur beim leeren Limit überspringen
+        return last.length == 0;
+    }
+    
+    /**
+     * Bricht die Suche ab: alle weiteren Teilbäume gelten als übersprungen.
+     */
+    public void close() {
+        lastKey = new int[0];
+    }
+    
+    /**
+     * Anzahl der gelieferten bzw. behaltenen Lösungen.
+     */
+    public synchronized int getCount() {
+        return sink != null ? delivered : Math.min(stored, maxSolutions);
+    }
+    
+    /**
+     * Gibt die Lösungen in Suchreihenfolge zurück.
+     */
+    public synchronized List<Grid> getSolutions() {
+        List<Grid> result = new ArrayList<>();
+        for (List<Grid> orbit : solutions.values()) {
+            result.addAll(orbit);
+        }
+        return result.size() > maxSolutions ? new ArrayList<>(result.subList(0, maxSolutions)) : result;
+    }
+}
@@ -0,0 +1,43 @@
+import java.util.function.Consumer;
+
+/**
+ * Kombiniert Lösungen schon während der Suche zu einer Ausgabe mit '?' für
+ * mehrdeutige Felder, ohne die Lösungen selbst zu behalten.
+ * Kann direkt an HeuristicSolver.solve(Consumer) übergeben werden.
+ */
+public class SolutionCombiner implements Consumer<Grid> {
+    private Grid combined;
+    private long count;
+    
+    @Override
+    public void accept(Grid solution) {
+        count++;
+        if (combined == null) {
+            combined = solution.copy();
+            return;
+        }
+        
+        int size = combined.getSize();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (combined.get(i, j) != solution.get(i, j)) {
+                    combined.set(i, j, -1); // mehrdeutig
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gibt die bisher kombinierte Ausgabe zurück (null ohne Lösung).
+     */
+    public Grid getCombined() {
+        return combined;
+    }
+    
+    /**
+     * Anzahl der bisher kombinierten Lösungen.
+     */
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,75 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * Ergebnis der exakten Lösungszählung (siehe HeuristicSolver.countSolutions()):
+ * die Anzahl aller Lösungen und für jede Zelle die Anzahl der Lösungen, in
+ * denen sie gefüllt ist. Daraus folgt auch die kombinierte Ausgabe: eine
+ * Zelle ist genau dann mehrdeutig, wenn sie in manchen, aber nicht allen
+ * Lösungen gefüllt ist.
+ */
+public class SolutionCount {
+    private final int size;
+    private final BigInteger total;
+    private final BigInteger[] filled; // pro Zelle row * size + col
+    
+    public SolutionCount(int size, BigInteger total, BigInteger[] filled) {
+        this.size = size;
+        this.total = total;
+        this.filled = filled;
+    }
+    
+    /**
+     * Anzahl aller Lösungen.
+     */
+    public BigInteger getTotal() {
+        return total;
+    }
+    
+    /**
+     * Anzahl der Lösungen, in denen die Zelle gefüllt ist.
+     */
+    public BigInteger getFilled(int row, int col) {
+        return filled[row * size + col];
+    }
+    
+    /**
+     * Anteil der Lösungen, in denen jede Zelle gefüllt ist (0 ohne Lösung).
+     */
+    public double[][] getFillRatios() {
+        double[][] ratios = new double[size][size];
+        if (total.signum() == 0) {
+            return ratios;
+        }
+        BigDecimal all = new BigDecimal(total);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                ratios[r][c] = new BigDecimal(getFilled(r, c)).divide(all, MathContext.DECIMAL64).doubleValue();
+            }
+        }
+        return ratios;
+    }
+    
+    /**
+     * Kombinierte Ausgabe aller Lösungen (-1 = mehrdeutig) oder null, wenn
+     * es keine Lösung gibt.
+     */
+    public Grid getCombined() {
+        if (total.signum() == 0) {
+            return null;
+        }
+        Grid combined = new Grid(size);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                BigInteger count = getFilled(r, c);
+                if (count.signum() == 0) {
+                    combined.set(r, c, 0);
+                } else if (count.equals(total)) {
+                    combined.set(r, c, 1);
+                }
+            }
+        }
+        return combined;
+    }
+}
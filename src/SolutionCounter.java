@@ -0,0 +1,293 @@
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exakte Lösungszählung für HeuristicSolver.countSolutions(), Verfahren
+ * siehe dort. Die Anzahlen eines Teils haben das Format der NogoodTable:
+ * [0] = alle Lösungen, [1 + j] = Lösungen, in denen seine Zelle j
+ * gefüllt ist.
+ */
+class SolutionCounter {
+    private final HeuristicSolver solver;
+    private final HeuristicSolver.Search search;
+    private final Grid grid;
+    private final int size;
+    private final NogoodTable cache;
+    private final boolean flowCheck;
+    private final LongAdder nodeCount;
+    private final SolverStats stats; // null = keine Messung
+    private boolean complete;
+    
+    /**
+     * Zählt ab dem (bereits propagierten) Grid mit einer Suche ohne
+     * Symmetriebrechung im Trail-Modus und einem Cache mit höchstens
+     * megabytes MB.
+     */
+    SolutionCounter(HeuristicSolver solver, HeuristicSolver.Search search, Grid grid, int megabytes,
+            boolean flowCheck, LongAdder nodeCount, SolverStats stats) {
+        this.solver = solver;
+        this.search = search;
+        this.grid = grid;
+        this.size = grid.getSize();
+        this.cache = new NogoodTable(megabytes);
+        this.flowCheck = flowCheck;
+        this.nodeCount = nodeCount;
+        this.stats = stats;
+    }
+    
+    /**
+     * Zählt alle Lösungen. Greift ein Limit, ist das Ergebnis eine untere
+     * Schranke (siehe countSoFar) und isComplete() gibt false zurück.
+     */
+    BigInteger[] count() {
+        // Wurzel: alle Zellen, keine Entscheidung, ein einziger Zweig
+        int cells = size * size;
+        Components components = search.components();
+        int[] all = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            all[cell] = cell;
+        }
+        CountFrame root = new CountFrame(all);
+        root.value = 2;
+        root.open(components.split(grid, all));
+        if (stats != null && root.parts.size() > 1) {
+            stats.decomposed(root.parts.size());
+        }
+        
+        Deque<CountFrame> stack = new ArrayDeque<>();
+        stack.push(root);
+        int untilLimitCheck = 0;
+        while (!stack.isEmpty()) {
+            CountFrame frame = stack.peek();
+            if (frame.parts != null) {
+                if (frame.part < frame.parts.size()) {
+                    // Nächsten Teil aus dem Cache nehmen oder zählen
+                    int[] part = frame.parts.get(frame.part);
+                    long[] key = components.key(grid, part);
+                    BigInteger[] known = cache.get(key);
+                    if (known != null) {
+                        frame.addPart(known);
+                    } else {
+                        CountFrame child = new CountFrame(part);
+                        child.key = key;
+                        child.cell = selectCell(part);
+                        stack.push(child);
+                    }
+                    if (stats != null) {
+                        stats.countCacheLookup(known != null);
+                    }
+                    continue;
+                }
+                frame.closeBranch(grid);
+                if (frame != root) {
+                    search.undo(grid, frame.mark);
+                    if (stats != null) {
+                        stats.backtrack();
+                    }
+                }
+                continue;
+            }
+            
+            if (frame.value < 2) {
+                if (--untilLimitCheck <= 0) {
+                    untilLimitCheck = HeuristicSolver.LIMIT_CHECK_INTERVAL;
+                    if (solver.checkLimits()) {
+                        break;
+                    }
+                }
+                int row = frame.cell / size;
+                int col = frame.cell % size;
+                int value = frame.value++;
+                if (!solver.isValueFeasible(grid, row, col, value)) {
+                    continue;
+                }
+                frame.mark = search.trail.mark();
+                // Die Flussprüfung schließt über das ganze Raster und könnte
+                // einen Teil wegen eines anderen verwerfen; der Cache stünde
+                // dann falsch, also nur, solange der Teil alles Offene umfasst
+                search.useFlows = flowCheck && cells - grid.countAssigned() == frame.cells.length;
+                search.assign(grid, row, col, value);
+                if (search.propagate(grid)) {
+                    // Knoten wie in Search.enter(): ein Zweig, der die Propagation übersteht
+                    nodeCount.increment();
+                    if (stats != null) {
+                        stats.node(stack.size());
+                    }
+                    List<int[]> parts = components.split(grid, frame.cells);
+                    if (stats != null && parts.size() > 1) {
+                        stats.decomposed(parts.size());
+                    }
+                    frame.open(parts);
+                } else {
+                    search.undo(grid, frame.mark);
+                }
+                continue;
+            }
+            
+            // Beide Werte gezählt
+            stack.pop();
+            BigInteger[] count = NogoodTable.NOGOOD;
+            if (frame.total.signum() != 0 || frame == root) {
+                count = new BigInteger[frame.cells.length + 1];
+                count[0] = frame.total;
+                System.arraycopy(frame.filled, 0, count, 1, frame.cells.length);
+            }
+            if (frame == root) {
+                complete = true;
+                return count;
+            }
+            boolean evicted = cache.put(frame.key, frame.cells.length, count);
+            if (stats != null) {
+                stats.countCacheStore(evicted);
+            }
+            stack.peek().addPart(count);
+        }
+        return countSoFar(stack);
+    }
+    
+    /**
+     * true, wenn count() bis zum Ende gezählt hat.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+    
+    /**
+     * Untere Schranke nach einem Abbruch: jeder Teil auf dem Stapel hat
+     * seine fertigen Zweige gezählt. Der laufende Zweig eines Teils kommt
+     * nur dazu, wenn der unfertige Teil darin der letzte ist; die anderen
+     * haben dann mindestens eine Lösung, ihr Produkt mit der Schranke des
+     * letzten ist selbst eine Schranke. Baut den Stapel von oben ab und
+     * nimmt dabei die Zuweisungen zurück.
+     */
+    private BigInteger[] countSoFar(Deque<CountFrame> stack) {
+        BigInteger[] carry = null;
+        while (!stack.isEmpty()) {
+            CountFrame frame = stack.pop();
+            if (frame.parts != null) {
+                if (carry != null && !frame.empty && frame.part == frame.parts.size() - 1) {
+                    frame.addPart(carry);
+                }
+                if (frame.part == frame.parts.size()) {
+                    frame.closeBranch(grid);
+                }
+                frame.parts = null;
+                if (!stack.isEmpty()) {
+                    search.undo(grid, frame.mark);
+                }
+            }
+            carry = new BigInteger[frame.cells.length + 1];
+            carry[0] = frame.total;
+            System.arraycopy(frame.filled, 0, carry, 1, frame.cells.length);
+        }
+        return carry;
+    }
+    
+    /**
+     * Wählt die Verzweigungszelle eines Teils wie
+     * HeuristicSolver.selectNextCell().
+     */
+    private int selectCell(int[] part) {
+        int best = part[0];
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int cell : part) {
+            double score = solver.computeCellScore(grid, cell / size, cell % size);
+            if (score > bestScore) {
+                bestScore = score;
+                best = cell;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Ein Teil auf dem Stapel: verzweigt über cell und sammelt die Anzahlen
+     * beider Werte. Im laufenden Zweig zerfallen die noch offenen Zellen in
+     * parts, deren Anzahlen nacheinander ermittelt und zum Schluss
+     * multipliziert werden.
+     */
+    private static class CountFrame {
+        final int[] cells;   // Zellen des Teils, aufsteigend
+        final BigInteger[] filled;
+        BigInteger total = BigInteger.ZERO;
+        long[] key;
+        int cell;            // Verzweigungszelle
+        int value;           // nächster zu probierender Wert, 2 = fertig
+        int mark;            // Trail-Checkpoint des laufenden Zweigs
+        List<int[]> parts;   // Teile des laufenden Zweigs, null = kein Zweig offen
+        BigInteger[][] partCounts;
+        int part;            // nächster zu zählender Teil
+        boolean empty;       // ein Teil hat keine Lösung
+        
+        CountFrame(int[] cells) {
+            this.cells = cells;
+            this.filled = new BigInteger[cells.length];
+            Arrays.fill(filled, BigInteger.ZERO);
+        }
+        
+        void open(List<int[]> branchParts) {
+            parts = branchParts;
+            partCounts = new BigInteger[branchParts.size()][];
+            part = 0;
+            empty = false;
+        }
+        
+        void addPart(BigInteger[] count) {
+            partCounts[part++] = count;
+            if (count[0].signum() == 0) {
+                // Der ganze Zweig hat keine Lösung, der Rest muss nicht gezählt werden
+                empty = true;
+                part = parts.size();
+            }
+        }
+        
+        /**
+         * Rechnet den fertigen Zweig ein: seine Anzahl ist das Produkt der
+         * Teile; eine Zelle eines Teils ist so oft gefüllt wie in ihrem Teil
+         * mal das Produkt der anderen, eine gesetzte Zelle in allen oder
+         * keiner Lösung des Zweigs.
+         */
+        void closeBranch(Grid grid) {
+            int count = partCounts.length;
+            List<int[]> branchParts = parts;
+            parts = null;
+            if (empty) {
+                return;
+            }
+            // others[i] = Produkt aller Teile außer i
+            BigInteger[] others = new BigInteger[count];
+            BigInteger product = BigInteger.ONE;
+            for (int i = 0; i < count; i++) {
+                others[i] = product;
+                product = product.multiply(partCounts[i][0]);
+            }
+            BigInteger suffix = BigInteger.ONE;
+            for (int i = count - 1; i >= 0; i--) {
+                others[i] = others[i].multiply(suffix);
+                suffix = suffix.multiply(partCounts[i][0]);
+            }
+            
+            total = total.add(product);
+            int size = grid.getSize();
+            for (int k = 0; k < cells.length; k++) {
+                if (grid.get(cells[k] / size, cells[k] % size) == 1) {
+                    filled[k] = filled[k].add(product);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int[] partCells = branchParts.get(i);
+                BigInteger[] partCount = partCounts[i];
+                for (int j = 0; j < partCells.length; j++) {
+                    if (partCount[j + 1].signum() != 0) {
+                        int k = Arrays.binarySearch(cells, partCells[j]);
+                        filled[k] = filled[k].add(partCount[j + 1].multiply(others[i]));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Wählt einen Solver anhand seines Namens, z.B. für --engine in Main.
+ *
+ * Eingebaut sind:
+ * - heuristic         HeuristicSolver mit Standardeinstellungen
+ * - heuristic-noflow  HeuristicSolver ohne Flussprüfung
+ * - heuristic-nosym   HeuristicSolver ohne Symmetriebrechung
+ * - heuristic-cbj     HeuristicSolver mit konfliktgesteuertem Backjumping
+ * - heuristic-probe   HeuristicSolver mit Probing (begrenzt, siehe setProbing)
+ * - sat               SatSolver
+ * - portfolio         heuristic und sat gleichzeitig (siehe PortfolioSolver)
+ *
+ * Mehrere Namen mit Komma ("heuristic,sat,heuristic-noflow") ergeben
+ * ebenfalls ein Portfolio aus genau diesen Solvern.
+ */
+public class SolverRegistry {
+    public static final String DEFAULT = "heuristic";
+    public static final String PORTFOLIO = "portfolio";
+    private static final String PORTFOLIO_MEMBERS = "heuristic,sat";
+    
+    private static final Map<String, Function<Constraints, TomographSolver>> ENGINES = new LinkedHashMap<>();
+    
+    static {
+        register("heuristic", HeuristicSolver::new);
+        register("heuristic-noflow", constraints -> {
+            HeuristicSolver solver = new HeuristicSolver(constraints);
+            solver.setFlowCheck(false);
+            return solver;
+        });
+        register("heuristic-nosym", constraints -> {
+            HeuristicSolver solver = new HeuristicSolver(constraints);
+            solver.setSymmetryBreaking(false);
+            return solver;
+        });
+        register("heuristic-cbj", constraints -> {
+            HeuristicSolver solver = new HeuristicSolver(constraints);
+            solver.setBackjumping(true);
+            return solver;
+        });
+        register("heuristic-probe", constraints -> {
+            HeuristicSolver solver = new HeuristicSolver(constraints);
+            solver.setProbing(true);
+            return solver;
+        });
+        register("sat", SatSolver::new);
+    }
+    
+    /**
+     * Meldet einen Solver unter einem Namen an (ersetzt einen gleichnamigen).
+     */
+    public static synchronized void register(String name, Function<Constraints, TomographSolver> factory) {
+        if (name.equals(PORTFOLIO) || name.contains(",")) {
+            throw new IllegalArgumentException("Ungültiger Solver-Name: " + name);
+        }
+        ENGINES.put(name, factory);
+    }
+    
+    /**
+     * Alle bekannten Namen einschließlich "portfolio".
+     */
+    public static synchronized Set<String> getNames() {
+        Set<String> names = new LinkedHashSet<>(ENGINES.keySet());
+        names.add(PORTFOLIO);
+        return names;
+    }
+    
+    /**
+     * Erzeugt den Solver für einen Namen oder eine Komma-Liste von Namen.
+     * Wirft IllegalArgumentException bei unbekannten Namen.
+     */
+    public static synchronized TomographSolver create(String spec, Constraints constraints) {
+        if (spec.equals(PORTFOLIO)) {
+            spec = PORTFOLIO_MEMBERS;
+        }
+        List<String> names = new ArrayList<>();
+        List<TomographSolver> solvers = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String name = part.trim();
+            Function<Constraints, TomographSolver> factory = ENGINES.get(name);
+            if (factory == null) {
+                throw new IllegalArgumentException("Unbekannter Solver: " + name + " (bekannt: " + String.join(", ", getNames()) + ")");
+            }
+            names.add(name);
+            solvers.add(factory.apply(constraints));
+        }
+        return solvers.size() == 1 ? solvers.get(0) : new PortfolioSolver(names, solvers);
+    }
+}
@@ -0,0 +1,328 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Langlebiger Solver-Dienst über HTTP auf localhost. Die JVM bleibt warm,
+ * sodass viele kleine Anfragen nicht jedes Mal JVM-Start und JIT bezahlen.
+ *
+ * POST /solve  Rumpf im Format der Eingabedateien (siehe InputParser).
+ *              Parameter: max=N (Lösungen), backbone=1, timeout=ms (0 = kein
+ *              Limit), stream=1,
+ *              engine=NAME (Solver aus SolverRegistry, Standard heuristic).
+ *              Antwort sind JSON-Zeilen; mit stream=1 kommt jede Lösung
+ *              sofort als eigene Zeile, zuletzt immer die Ergebniszeile
+ *              (status "ok" oder "timeout", dann ist das Ergebnis partiell
+ *              und "certain" enthält die durch Propagation sicheren Zellen).
+ *              Scheitert der Solver, kommt status "error" mit "message",
+ *              vor der ersten Zeile als Antwort 500.
+ * GET  /stats  Warteschlange, Zähler und Latenz-Perzentile (p50/p90/p99 in ms
+ *              über die letzten 1024 Anfragen).
+ *
+ * Gelöst wird auf einem festen Pool mit begrenzter Warteschlange. Ist sie
+ * voll, wird die Anfrage sofort mit 503 abgelehnt statt sich zu stauen.
+ *
+ * Verwendung: java SolverServer [--port 8080] [--threads N] [--queue 64]
+ *                 [--timeout 10000]
+ */
+public class SolverServer {
+    private static final int LATENCY_WINDOW = 1024;
+    
+    private final HttpServer server;
+    private final ExecutorService httpPool;
+    private final ThreadPoolExecutor workers;
+    private final long defaultTimeout;
+    
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final long[] latencies = new long[LATENCY_WINDOW]; // Mikrosekunden, Ringpuffer
+    private long latencyCount;
+    
+    public SolverServer(int port, int threads, int queueSize, long defaultTimeout) throws IOException {
+        this.defaultTimeout = defaultTimeout;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize));
+        this.httpPool = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/stats", this::handleStats);
+        server.setExecutor(httpPool);
+    }
+    
+    public static void main(String[] args) {
+        int port = 8080;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queueSize = 64;
+        long timeout = 10000;
+        
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--queue") && i + 1 < args.length) {
+                queueSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--timeout") && i + 1 < args.length) {
+                timeout = Long.parseLong(args[++i]);
+            } else {
+                System.out.println("Verwendung: java SolverServer [--port 8080] [--threads N] [--queue 64] [--timeout 10000]");
+                System.exit(1);
+            }
+        }
+        
+        try {
+            SolverServer solverServer = new SolverServer(port, threads, queueSize, timeout);
+            Runtime.getRuntime().addShutdownHook(new Thread(solverServer::stop));
+            solverServer.start();
+            System.err.println("SolverServer läuft auf http://localhost:" + port
+                    + " (" + threads + " Threads, Warteschlange " + queueSize + ")");
+        } catch (IOException e) {
+            System.err.println("Fehler: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    public void stop() {
+        server.stop(0);
+        workers.shutdownNow();
+        httpPool.shutdownNow();
+    }
+    
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        long arrival = System.nanoTime();
+        if (!exchange.getRequestMethod().equals("POST")) {
+            reply(exchange, 405, new JsonLine().put("status", "error").put("message", "nur POST").toString());
+            return;
+        }
+        
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        Constraints constraints;
+        int maxSolutions;
+        long timeout;
+        TomographSolver solver;
+        try {
+            constraints = InputParser.parse(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            maxSolutions = Integer.parseInt(params.getOrDefault("max", "100"));
+            timeout = Long.parseLong(params.getOrDefault("timeout", Long.toString(defaultTimeout)));
+            solver = SolverRegistry.create(params.getOrDefault("engine", SolverRegistry.DEFAULT), constraints);
+        } catch (IOException | RuntimeException e) {
+            reply(exchange, 400, new JsonLine().put("status", "error").put("message", String.valueOf(e.getMessage())).toString());
+            return;
+        }
+        
+        boolean backbone = "1".equals(params.get("backbone"));
+        boolean stream = "1".equals(params.get("stream"));
+        solver.setMaxSolutions(maxSolutions);
+        
+        try {
+            workers.execute(() -> solve(exchange, constraints, solver, backbone, stream, arrival, timeout));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            reply(exchange, 503, new JsonLine().put("status", "rejected")
+                    .put("queued", workers.getQueue().size()).toString());
+        }
+    }
+    
+    /**
+     * Läuft auf einem Worker: löst die Instanz und schreibt die Antwort.
+     * Der Timeout zählt ab Eingang der Anfrage, die Wartezeit gehört also dazu;
+     * ist er schon in der Warteschlange abgelaufen, wird gar nicht gesucht.
+     * Die Header gehen erst mit der ersten Zeile raus; scheitert der Solver
+     * vorher, wird daraus eine 500 mit Fehlerzeile, danach (nur mit stream=1)
+     * eine Fehlerzeile als letzte Zeile.
+     */
+    private void solve(HttpExchange exchange, Constraints constraints, TomographSolver solver,
+                       boolean backbone, boolean stream, long arrival, long timeout) {
+        long start = System.nanoTime();
+        long remaining = timeout - (start - arrival) / 1000000;
+        LineWriter out = new LineWriter(exchange);
+        
+        try {
+            if (timeout > 0 && remaining <= 0) {
+                timeouts.incrementAndGet();
+                out.write(new JsonLine()
+                        .put("status", "timeout")
+                        .put("size", constraints.getSize())
+                        .putRaw("solutions", "null")
+                        .put("nodes", 0)
+                        .put("millis", 0.0)
+                        .put("queuedMillis", (start - arrival) / 1000 / 1000.0)
+                        .put("combined", (Grid) null)
+                        .toString());
+                return;
+            }
+            if (timeout > 0) {
+                solver.setTimeLimit(remaining);
+            }
+            
+            Grid combined;
+            Long solutionCount;
+            if (backbone) {
+                combined = solver.solveBackbone();
+                solutionCount = combined == null && !solver.getStatus().isPartial() ? 0L : null;
+            } else {
+                SolutionCombiner combiner = new SolutionCombiner();
+                solver.solve(grid -> {
+                    combiner.accept(grid);
+                    if (stream) {
+                        try {
+                            out.write(new JsonLine().put("solution", grid).toString());
+                        } catch (IOException e) {
+                            solver.cancel(); // Client ist weg
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+                combined = combiner.getCombined();
+                solutionCount = combiner.getCount();
+            }
+            
+            TomographSolver.Status status = solver.getStatus();
+            if (status == TomographSolver.Status.TIMEOUT) {
+                timeouts.incrementAndGet();
+            }
+            long now = System.nanoTime();
+            JsonLine result = new JsonLine()
+                    .put("status", status.isPartial() ? status.name().toLowerCase() : "ok")
+                    .put("size", constraints.getSize())
+                    .putRaw("solutions", solutionCount == null ? "null" : solutionCount.toString())
+                    .put("nodes", solver.getNodeCount())
+                    .put("millis", (now - start) / 1000 / 1000.0)
+                    .put("queuedMillis", (start - arrival) / 1000 / 1000.0)
+                    .put("combined", combined);
+            if (status.isPartial()) {
+                // Was ohne Suche schon feststeht, gilt auch für das Teilergebnis
+                result.put("certain", solver.getCertainCells());
+            }
+            out.write(result.toString());
+        } catch (IOException | UncheckedIOException e) {
+            // Client hat die Verbindung geschlossen, nichts mehr zu senden
+        } catch (RuntimeException e) {
+            // Solver gescheitert (z.B. ein Mitglied des Portfolios)
+            String line = new JsonLine().put("status", "error").put("message", String.valueOf(e.getMessage())).toString();
+            try {
+                if (out.isStarted()) {
+                    out.write(line);
+                } else {
+                    reply(exchange, 500, line);
+                }
+            } catch (IOException ignored) {
+                // Client ist weg
+            }
+        } finally {
+            exchange.close();
+            completed.incrementAndGet();
+            recordLatency((System.nanoTime() - arrival) / 1000);
+        }
+    }
+    
+    private void handleStats(HttpExchange exchange) throws IOException {
+        long[] window;
+        synchronized (latencies) {
+            window = Arrays.copyOf(latencies, (int) Math.min(latencyCount, LATENCY_WINDOW));
+        }
+        Arrays.sort(window);
+        
+        reply(exchange, 200, new JsonLine()
+                .put("queued", workers.getQueue().size())
+                .put("active", workers.getActiveCount())
+                .put("completed", completed.get())
+                .put("rejected", rejected.get())
+                .put("timeouts", timeouts.get())
+                .put("p50", percentile(window, 0.50))
+                .put("p90", percentile(window, 0.90))
+                .put("p99", percentile(window, 0.99))
+                .toString());
+    }
+    
+    private void recordLatency(long micros) {
+        synchronized (latencies) {
+            latencies[(int) (latencyCount % LATENCY_WINDOW)] = micros;
+            latencyCount++;
+        }
+    }
+    
+    /**
+     * Perzentil in Millisekunden über ein sortiertes Fenster (Nearest-Rank).
+     */
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1000.0;
+    }
+    
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+    
+    private static void reply(HttpExchange exchange, int status, String line) throws IOException {
+        byte[] body = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    /**
+     * Antwort aus JSON-Zeilen mit Status 200. Die Header werden erst mit der
+     * ersten Zeile gesendet, bis dahin kann die Antwort noch ein Fehler werden.
+     */
+    private static class LineWriter {
+        private final HttpExchange exchange;
+        private volatile OutputStream out; // null, solange nichts gesendet wurde
+        
+        LineWriter(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+        
+        boolean isStarted() {
+            return out != null;
+        }
+        
+        void write(String line) throws IOException {
+            if (out == null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0);
+                out = exchange.getResponseBody();
+            }
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Messwerte eines Solver-Laufs, aufgeschlüsselt nach Phase und Linientyp.
+ *
+ * Der Solver füllt das Objekt nur, wenn es mit setStats() gesetzt wurde;
+ * ohne Stats kostet die Messung nur eine null-Prüfung pro Messpunkt.
+ * Alle Zähler sind LongAdder, können also während der Suche aus einem
+ * anderen Thread gelesen werden und vertragen die parallele Suche.
+ * Werte sammeln sich über mehrere Läufe an, bis reset() aufgerufen wird.
+ */
+public class SolverStats {
+    // Phasen für die Zeitmessung
+    public static final int SELECT = 0;      // Zellauswahl
+    public static final int PROPAGATE = 1;   // Constraint Propagation
+    public static final int FEASIBLE = 2;    // Forward Checking (isValueFeasible)
+    public static final int COPY = 3;        // Grid.copy() im Kopier-Modus
+    public static final int PHASES = 4;
+    
+    private static final String[] PHASE_NAMES = {"Zellauswahl", "Propagation", "Forward Checking", "Grid-Kopien"};
+    private static final String[] LINE_NAMES = {"Zeilen", "Spalten", "Hauptdiagonalen", "Nebendiagonalen"};
+    
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder propagations = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] forced = adders(Grid.LINE_TYPES);
+    private final LongAdder[] conflicts = adders(Grid.LINE_TYPES);
+    private final LongAdder pairForced = new LongAdder();
+    private final LongAdder flowForced = new LongAdder();
+    private final LongAdder flowConflicts = new LongAdder();
+    private final LongAdder restarts = new LongAdder();
+    private final LongAdder backjumps = new LongAdder();
+    private final LongAdder learned = new LongAdder();
+    private final LongAdder decompositions = new LongAdder();
+    private final LongAdder components = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder failedLiterals = new LongAdder();
+    private final LongAdder implied = new LongAdder();
+    private final LongAdder countCacheHits = new LongAdder();
+    private final LongAdder countCacheMisses = new LongAdder();
+    private final LongAdder countCacheStores = new LongAdder();
+    private final LongAdder countCacheEvictions = new LongAdder();
+    private final LongAdder nogoodHits = new LongAdder();
+    private final LongAdder nogoodMisses = new LongAdder();
+    private final LongAdder nogoodStores = new LongAdder();
+    private final LongAdder nogoodEvictions = new LongAdder();
+    private final LongAdder[] nanos = adders(PHASES);
+    
+    private static LongAdder[] adders(int count) {
+        LongAdder[] result = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new LongAdder();
+        }
+        return result;
+    }
+    
+    /**
+     * Setzt alle Werte auf 0 zurück.
+     */
+    public void reset() {
+        nodes.reset();
+        propagations.reset();
+        backtracks.reset();
+        maxDepth.reset();
+        for (int t = 0; t < Grid.LINE_TYPES; t++) {
+            forced[t].reset();
+            conflicts[t].reset();
+        }
+        pairForced.reset();
+        flowForced.reset();
+        flowConflicts.reset();
+        restarts.reset();
+        backjumps.reset();
+        learned.reset();
+        decompositions.reset();
+        components.reset();
+        probes.reset();
+        failedLiterals.reset();
+        implied.reset();
+        countCacheHits.reset();
+        countCacheMisses.reset();
+        countCacheStores.reset();
+        countCacheEvictions.reset();
+        nogoodHits.reset();
+        nogoodMisses.reset();
+        nogoodStores.reset();
+        nogoodEvictions.reset();
+        for (int p = 0; p < PHASES; p++) {
+            nanos[p].reset();
+        }
+    }
+    
+    void node(int depth) {
+        nodes.increment();
+        maxDepth.accumulate(depth);
+    }
+    
+    void propagation() {
+        propagations.increment();
+    }
+    
+    void backtrack() {
+        backtracks.increment();
+    }
+    
+    void forced(int type, int cells) {
+        forced[type].add(cells);
+    }
+    
+    void conflict(int type) {
+        conflicts[type].increment();
+    }
+    
+    void pairForced(int cells) {
+        pairForced.add(cells);
+    }
+    
+    void flowForced(int cells) {
+        flowForced.add(cells);
+    }
+    
+    void flowConflict() {
+        flowConflicts.increment();
+    }
+    
+    void backjump(int levels) {
+        backjumps.add(levels);
+    }
+    
+    void learned() {
+        learned.increment();
+    }
+    
+    void decomposed(int parts) {
+        decompositions.increment();
+        components.add(parts);
+    }
+    
+    void probe(int failed, int impliedCells) {
+        probes.increment();
+        failedLiterals.add(failed);
+        implied.add(impliedCells);
+    }
+    
+    void countCacheLookup(boolean hit) {
+        (hit ? countCacheHits : countCacheMisses).increment();
+    }
+    
+    void countCacheStore(boolean evicted) {
+        countCacheStores.increment();
+        if (evicted) {
+            countCacheEvictions.increment();
+        }
+    }
+    
+    void nogoodLookup(boolean hit) {
+        (hit ? nogoodHits : nogoodMisses).increment();
+    }
+    
+    void nogoodStore(boolean evicted) {
+        nogoodStores.increment();
+        if (evicted) {
+            nogoodEvictions.increment();
+        }
+    }
+    
+    /**
+     * Zähler eines SatSolver-Laufs: Entscheidungen zählen als Knoten,
+     * Konflikte als Rücknahmen, propagierte Literale als Propagationen.
+     */
+    void satRun(long decisions, long conflicts, long propagated, long restartCount) {
+        nodes.add(decisions);
+        backtracks.add(conflicts);
+        propagations.add(propagated);
+        restarts.add(restartCount);
+    }
+    
+    void time(int phase, long nanoseconds) {
+        nanos[phase].add(nanoseconds);
+    }
+    
+    /**
+     * Anzahl der besuchten Knoten im Suchbaum.
+     */
+    public long getNodes() {
+        return nodes.sum();
+    }
+    
+    /**
+     * Anzahl der Propagationsdurchläufe (Aufrufe bis zur leeren Warteschlange).
+     */
+    public long getPropagations() {
+        return propagations.sum();
+    }
+    
+    /**
+     * Anzahl der zurückgenommenen Entscheidungen.
+     */
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+    
+    /**
+     * Größte erreichte Suchtiefe (Anzahl Entscheidungen).
+     */
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+    
+    /**
+     * Von der Linienpropagation erzwungene Zellen, nach Linientyp (Grid.ROW usw.).
+     */
+    public long getForced(int type) {
+        return forced[type].sum();
+    }
+    
+    /**
+     * Von der Propagation erkannte Konflikte, nach Linientyp.
+     */
+    public long getConflicts(int type) {
+        return conflicts[type].sum();
+    }
+    
+    /**
+     * Von der Paar-Stufe der Propagation gesetzte Zellen (siehe
+     * HeuristicSolver.setPairPropagation). Sie zählen bei getForced() nicht mit.
+     */
+    public long getPairForced() {
+        return pairForced.sum();
+    }
+    
+    /**
+     * Von der Flussprüfung gesetzte Zellen (siehe FlowCheck).
+     */
+    public long getFlowForced() {
+        return flowForced.sum();
+    }
+    
+    /**
+     * Von der Flussprüfung abgeschnittene Teilbäume (siehe FlowCheck).
+     */
+    public long getFlowConflicts() {
+        return flowConflicts.sum();
+    }
+    
+    /**
+     * Neustarts der SAT-Suche (siehe SatEngine).
+     */
+    public long getRestarts() {
+        return restarts.sum();
+    }
+    
+    /**
+     * Beim Backjumping übersprungene Ebenen.
+     */
+    public long getBackjumps() {
+        return backjumps.sum();
+    }
+    
+    /**
+     * Gelernte Nogoods aus der Konfliktanalyse.
+     */
+    public long getLearned() {
+        return learned.sum();
+    }
+    
+    /**
+     * Teilsuchen, vor denen das Restproblem in mehrere Komponenten zerfiel.
+     */
+    public long getDecompositions() {
+        return decompositions.sum();
+    }
+    
+    /**
+     * Komponenten aus allen Zerlegungen zusammen.
+     */
+    public long getComponents() {
+        return components.sum();
+    }
+    
+    /**
+     * Beim Probing untersuchte Zellen.
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+    
+    /**
+     * Beim Probing gescheiterte Werte (die Zelle bekam den anderen Wert).
+     */
+    public long getFailedLiterals() {
+        return failedLiterals.sum();
+    }
+    
+    /**
+     * Zellen, die beim Probing aus beiden Werten gleich folgten.
+     */
+    public long getImplied() {
+        return implied.sum();
+    }
+    
+    /**
+     * Teile der Lösungszählung, deren Anzahl schon im Cache stand.
+     */
+    public long getCountCacheHits() {
+        return countCacheHits.sum();
+    }
+    
+    /**
+     * Teile der Lösungszählung, die gezählt werden mussten.
+     */
+    public long getCountCacheMisses() {
+        return countCacheMisses.sum();
+    }
+    
+    /**
+     * In den Cache der Lösungszählung eingetragene Teile (siehe NogoodTable).
+     */
+    public long getCountCacheStores() {
+        return countCacheStores.sum();
+    }
+    
+    /**
+     * Einträge, die beim Eintragen verdrängt wurden.
+     */
+    public long getCountCacheEvictions() {
+        return countCacheEvictions.sum();
+    }
+    
+    /**
+     * Treffer in der Nogood-Tabelle (übersprungene Teilbäume, siehe
+     * HeuristicSolver.setNogoodCache).
+     */
+    public long getNogoodHits() {
+        return nogoodHits.sum();
+    }
+    
+    /**
+     * Nachschlagen in der Nogood-Tabelle ohne Eintrag.
+     */
+    public long getNogoodMisses() {
+        return nogoodMisses.sum();
+    }
+    
+    /**
+     * In die Nogood-Tabelle eingetragene Teilbäume.
+     */
+    public long getNogoodStores() {
+        return nogoodStores.sum();
+    }
+    
+    /**
+     * Einträge der Nogood-Tabelle, die beim Eintragen verdrängt wurden.
+     */
+    public long getNogoodEvictions() {
+        return nogoodEvictions.sum();
+    }
+    
+    /**
+     * Gemessene Zeit einer Phase in Nanosekunden, über alle Threads summiert.
+     */
+    public long getNanos(int phase) {
+        return nanos[phase].sum();
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Knoten: ").append(getNodes())
+                .append(", Rücknahmen: ").append(getBacktracks())
+                .append(", max. Tiefe: ").append(getMaxDepth())
+                .append(", Propagationen: ").append(getPropagations());
+        if (getRestarts() > 0) {
+            sb.append(", Neustarts: ").append(getRestarts());
+        }
+        sb.append('\n');
+        for (int t = 0; t < Grid.LINE_TYPES; t++) {
+            sb.append(String.format("%-16s erzwungen: %10d  Konflikte: %8d%n",
+                    LINE_NAMES[t], getForced(t), getConflicts(t)));
+        }
+        sb.append(String.format("%-16s erzwungen: %10d%n", "Paar-Stufe", getPairForced()));
+        sb.append(String.format("%-16s erzwungen: %10d  Konflikte: %8d%n",
+                "Flussprüfung", getFlowForced(), getFlowConflicts()));
+        if (getBackjumps() + getLearned() > 0) {
+            sb.append(String.format("%-16s übersprungene Ebenen: %10d  gelernte Nogoods: %8d%n",
+                    "Backjumping", getBackjumps(), getLearned()));
+        }
+        if (getDecompositions() > 0) {
+            sb.append(String.format("%-16s Zerlegungen: %8d  Komponenten: %8d%n",
+                    "Komponenten", getDecompositions(), getComponents()));
+        }
+        if (getProbes() > 0) {
+            sb.append(String.format("%-16s Zellen: %13d  gescheitert: %8d  gefolgert: %8d%n",
+                    "Probing", getProbes(), getFailedLiterals(), getImplied()));
+        }
+        if (getCountCacheHits() + getCountCacheMisses() > 0) {
+            sb.append(String.format("%-16s Treffer: %12d  Fehlschläge: %8d  Einträge: %8d  verdrängt: %8d%n",
+                    "Zähl-Cache", getCountCacheHits(), getCountCacheMisses(), getCountCacheStores(), getCountCacheEvictions()));
+        }
+        if (getNogoodHits() + getNogoodMisses() > 0) {
+            sb.append(String.format("%-16s Treffer: %12d  Fehlschläge: %8d  Einträge: %8d  verdrängt: %8d%n",
+                    "Nogood-Tabelle", getNogoodHits(), getNogoodMisses(), getNogoodStores(), getNogoodEvictions()));
+        }
+        for (int p = 0; p < PHASES; p++) {
+            sb.append(String.format("%-16s %10.2f ms%n", PHASE_NAMES[p], getNanos(p) / 1e6));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Symmetrien des Quadrats (Diedergruppe: vier Drehungen, vier Spiegelungen),
+ * unter denen die Constraints einer Instanz unverändert bleiben.
+ *
+ * Eine Transformation g bildet Zeilen und Spalten auf Zeilen oder Spalten
+ * ab und Diagonalen auf Diagonalen. Ist die Summe jeder Linie gleich der
+ * Summe ihrer Bildlinie, ist mit jeder Lösung X auch g(X) eine Lösung. Die
+ * gefundenen Transformationen bilden eine Gruppe (mit der Identität).
+ *
+ * Zur Symmetriebrechung lässt der Solver nur die Lösung zu, die in
+ * Zeilen-Reihenfolge (0 vor 1) lexikographisch am kleinsten unter allen
+ * ihren Bildern ist (lex-leader). orbit() und combine() rechnen die
+ * kanonischen Lösungen wieder auf alle Lösungen um.
+ */
+public class Symmetry {
+    private static final String[] NAMES = {
+        "Identität", "Drehung 90°", "Drehung 180°", "Drehung 270°",
+        "Spiegelung links/rechts", "Spiegelung oben/unten",
+        "Spiegelung Hauptdiagonale", "Spiegelung Nebendiagonale"
+    };
+    
+    private final int size;
+    private final List<Integer> transforms; // Indizes in NAMES, ohne Identität
+    private final int[][] preimages;        // preimages[g][q] = Zelle p mit g(p) = q
+    
+    private Symmetry(int size, List<Integer> transforms) {
+        this.size = size;
+        this.transforms = transforms;
+        this.preimages = new int[transforms.size()][size * size];
+        for (int g = 0; g < transforms.size(); g++) {
+            for (int p = 0; p < size * size; p++) {
+                preimages[g][image(transforms.get(g), p)] = p;
+            }
+        }
+    }
+    
+    /**
+     * Bestimmt alle Transformationen, unter denen die Constraints gleich bleiben.
+     */
+    public static Symmetry detect(Constraints constraints) {
+        int size = constraints.getSize();
+        Grid lines = new Grid(size);
+        List<Integer> found = new ArrayList<>();
+        for (int t = 1; t < NAMES.length; t++) {
+            if (isInvariant(constraints, lines, t)) {
+                found.add(t);
+            }
+        }
+        return new Symmetry(size, found);
+    }
+    
+    private static boolean isInvariant(Constraints constraints, Grid lines, int t) {
+        int size = lines.getSize();
+        for (int type = 0; type < Grid.LINE_TYPES; type++) {
+            int imageType = imageType(lines, t, type);
+            for (int index = 0; index < lines.getLineCount(type); index++) {
+                int pos = lines.getLineStart(type, index);
+                int cell = image(size, t, lines.getCellRow(type, index, pos) * size + lines.getCellCol(type, index, pos));
+                int imageIndex = lines.getLineIndex(imageType, cell / size, cell % size);
+                if (constraints.getLineSum(type, index) != constraints.getLineSum(imageType, imageIndex)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Linientyp, auf den t die Linien des Typs type abbildet. Bestimmt an
+     * der längsten Linie des Typs, deren Bildzellen alle auf einer Linie
+     * des gesuchten Typs liegen.
+     */
+    private static int imageType(Grid lines, int t, int type) {
+        int size = lines.getSize();
+        int index = type <= Grid.COL ? 0 : size - 1; // Zeile/Spalte 0 bzw. lange Diagonale
+        int start = lines.getLineStart(type, index);
+        int candidates = type <= Grid.COL ? Grid.ROW : Grid.DIAG_DOWN;
+        for (int imageType = candidates; imageType < candidates + 2; imageType++) {
+            int first = -1;
+            boolean same = true;
+            for (int pos = start; pos < start + lines.getLineLength(type, index); pos++) {
+                int cell = image(size, t, lines.getCellRow(type, index, pos) * size + lines.getCellCol(type, index, pos));
+                int line = lines.getLineIndex(imageType, cell / size, cell % size);
+                if (first == -1) {
+                    first = line;
+                } else if (line != first) {
+                    same = false;
+                }
+            }
+            if (same) {
+                return imageType;
+            }
+        }
+        return candidates; // nur bei size == 1, dort sind beide gleich
+    }
+    
+    private int image(int t, int cell) {
+        return image(size, t, cell);
+    }
+    
+    private static int image(int size, int t, int cell) {
+        int r = cell / size;
+        int c = cell % size;
+        int m = size - 1;
+        switch (t) {
+            case 1: return c * size + (m - r);
+            case 2: return (m - r) * size + (m - c);
+            case 3: return (m - c) * size + r;
+            case 4: return r * size + (m - c);
+            case 5: return (m - r) * size + c;
+            case 6: return c * size + r;
+            case 7: return (m - c) * size + (m - r);
+            default: return cell;
+        }
+    }
+    
+    /**
+     * Anzahl der Symmetrien ohne die Identität (0 = keine Symmetrie).
+     */
+    public int getCount() {
+        return transforms.size();
+    }
+    
+    /**
+     * Namen der gefundenen Symmetrien ohne die Identität.
+     */
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>();
+        for (int t : transforms) {
+            names.add(NAMES[t]);
+        }
+        return names;
+    }
+    
+    /**
+     * Zelle p (row * size + col), die Symmetrie g auf q abbildet. Das Bild
+     * g(X) hat in Zelle q also den Wert von X in Zelle p.
+     */
+    public int getPreimage(int g, int q) {
+        return preimages[g][q];
+    }
+    
+    /**
+     * Alle verschiedenen Bilder einer Lösung, die Lösung selbst zuerst.
+     */
+    public List<Grid> orbit(Grid solution) {
+        Map<String, Grid> images = new LinkedHashMap<>();
+        images.put(solution.toString(), solution);
+        for (int g = 0; g < transforms.size(); g++) {
+            Grid image = new Grid(size);
+            for (int q = 0; q < size * size; q++) {
+                int p = preimages[g][q];
+                image.set(q / size, q % size, solution.get(p / size, p % size));
+            }
+            images.putIfAbsent(image.toString(), image);
+        }
+        return new ArrayList<>(images.values());
+    }
+    
+    /**
+     * Rechnet eine kombinierte Ausgabe der kanonischen Lösungen (-1 =
+     * mehrdeutig oder offen) auf alle Lösungen um: eine Zelle steht nur
+     * fest, wenn alle Zellen ihrer Bahn denselben festen Wert haben.
+     */
+    public Grid combine(Grid canonical) {
+        Grid result = new Grid(size);
+        for (int p = 0; p < size * size; p++) {
+            int value = canonical.get(p / size, p % size);
+            for (int g = 0; g < transforms.size() && value != -1; g++) {
+                int q = preimages[g][p];
+                if (canonical.get(q / size, q % size) != value) {
+                    value = -1;
+                }
+            }
+            if (value != -1) {
+                result.set(p / size, p % size, value);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Erzeugt synthetische Eingabedateien beliebiger Größe für Skalierungstests.
+ * 
+ * Es wird ein zufälliges n×n Bild mit gewünschter Dichte erzeugt, daraus
+ * werden Zeilen-, Spalten- und Diagonalsummen berechnet und im Format von
+ * InputParser geschrieben. Optional wird das Originalbild mitgeschrieben,
+ * um die Ausgabe des Solvers zu prüfen.
+ * 
+ * Verwendung: java TomographGenerator [--seed S] [--muster zufall|flecken]
+ *                 [--bild bild.txt] <n> <dichte> <ausgabe.txt>
+ */
+public class TomographGenerator {
+    
+    public static void main(String[] args) {
+        long seed = System.nanoTime();
+        String pattern = "zufall";
+        String imageFile = null;
+        String[] positional = new String[3];
+        int count = 0;
+        
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--muster") && i + 1 < args.length) {
+                pattern = args[++i];
+            } else if (args[i].equals("--bild") && i + 1 < args.length) {
+                imageFile = args[++i];
+            } else if (count < positional.length) {
+                positional[count++] = args[i];
+            }
+        }
+        
+        if (count < 3) {
+            System.out.println("Verwendung: java TomographGenerator [--seed S] [--muster zufall|flecken] [--bild bild.txt] <n> <dichte> <ausgabe.txt>");
+            System.out.println("Beispiel: java TomographGenerator --seed 1 --bild bild200.txt 200 0.4 tomograph200.txt");
+            System.exit(1);
+        }
+        
+        try {
+            int size = Integer.parseInt(positional[0]);
+            double density = Double.parseDouble(positional[1]);
+            checkDensity(density);
+            Random random = new Random(seed);
+            
+            Grid image;
+            if (pattern.equals("zufall")) {
+                image = randomImage(size, density, random);
+            } else if (pattern.equals("flecken")) {
+                image = blobImage(size, density, random);
+            } else {
+                throw new IllegalArgumentException("Unbekanntes Muster: " + pattern);
+            }
+            
+            write(computeConstraints(image), positional[2]);
+            if (imageFile != null) {
+                try (PrintWriter out = new PrintWriter(imageFile, "UTF-8")) {
+                    out.print(image);
+                }
+            }
+            System.out.println(size + "x" + size + " Tomogramm (Seed " + seed + ") geschrieben: " + positional[2]);
+        } catch (Exception e) {
+            System.err.println("Fehler: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Jede Zelle ist unabhängig mit Wahrscheinlichkeit density gefüllt.
+     */
+    public static Grid randomImage(int size, double density, Random random) {
+        checkDensity(density);
+        Grid image = new Grid(size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                image.set(i, j, random.nextDouble() < density ? 1 : 0);
+            }
+        }
+        return image;
+    }
+    
+    /**
+     * Zusammenhängende runde Flecken, bis die gewünschte Dichte erreicht ist.
+     * Ähnelt eher echten Bildern als unabhängiges Rauschen.
+     */
+    public static Grid blobImage(int size, double density, Random random) {
+        checkDensity(density);
+        Grid image = new Grid(size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                image.set(i, j, 0);
+            }
+        }
+        
+        long target = Math.round(density * size * size);
+        long filled = 0;
+        int maxRadius = Math.max(1, size / 8);
+        while (filled < target) {
+            int centerRow = random.nextInt(size);
+            int centerCol = random.nextInt(size);
+            int radius = 1 + random.nextInt(maxRadius);
+            for (int i = Math.max(0, centerRow - radius); i <= Math.min(size - 1, centerRow + radius) && filled < target; i++) {
+                for (int j = Math.max(0, centerCol - radius); j <= Math.min(size - 1, centerCol + radius) && filled < target; j++) {
+                    int di = i - centerRow;
+                    int dj = j - centerCol;
+                    if (di * di + dj * dj <= radius * radius && image.get(i, j) == 0) {
+                        image.set(i, j, 1);
+                        filled++;
+                    }
+                }
+            }
+        }
+        return image;
+    }
+    
+    /**
+     * Die Dichte muss zwischen 0 und 1 liegen; mit mehr als 1 fände
+     * blobImage() nie genug leere Zellen.
+     */
+    private static void checkDensity(double density) {
+        if (!(density >= 0 && density <= 1)) {
+            throw new IllegalArgumentException("Dichte muss zwischen 0 und 1 liegen: " + density);
+        }
+    }
+    
+    /**
+     * Berechnet die Summen aller Linien eines vollständig belegten Bildes.
+     */
+    public static Constraints computeConstraints(Grid image) {
+        int size = image.getSize();
+        int[] colSums = new int[size];
+        int[] rowSums = new int[size];
+        int[] diagDownSums = new int[2 * size - 1];
+        int[] diagUpSums = new int[2 * size - 1];
+        for (int i = 0; i < size; i++) {
+            colSums[i] = image.getColSum(i);
+            rowSums[i] = image.getRowSum(i);
+        }
+        for (int k = 0; k < 2 * size - 1; k++) {
+            diagDownSums[k] = image.getDiagDownSum(k);
+            diagUpSums[k] = image.getDiagUpSum(k);
+        }
+        return new Constraints(size, colSums, rowSums, diagDownSums, diagUpSums);
+    }
+    
+    /**
+     * Schreibt die Constraints im Format, das InputParser.parse liest.
+     */
+    public static void write(Constraints constraints, String filename) throws IOException {
+        try (PrintWriter out = new PrintWriter(filename, "UTF-8")) {
+            out.println(constraints.getSize());
+            out.println(join(constraints.getColSums()));
+            out.println(join(constraints.getRowSums()));
+            out.println(join(constraints.getDiagDownSums()));
+            out.println(join(constraints.getDiagUpSums()));
+        }
+    }
+    
+    private static String join(int[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+}
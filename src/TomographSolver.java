@@ -0,0 +1,105 @@
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Gemeinsame Schnittstelle der Solver für das Bibertomograph-Problem.
+ *
+ * Implementierungen: HeuristicSolver (Backtracking mit Propagation),
+ * SatSolver (Kodierung als SAT-Problem, gelöst mit SatEngine) und
+ * PortfolioSolver (lässt mehrere Solver gegeneinander laufen). Welcher
+ * Solver verwendet wird, bestimmt SolverRegistry anhand eines Namens.
+ *
+ * Alle Solver halten sich an dieselben Regeln für Limits und Abbruch:
+ * greift ein Limit, endet die Suche vorzeitig, die bis dahin gelieferten
+ * Lösungen bleiben gültig und getStatus() nennt den Grund.
+ */
+public interface TomographSolver {
+    /**
+     * Ergebnis der letzten Suche.
+     */
+    enum Status {
+        COMPLETE,       // Suchraum vollständig durchsucht
+        SOLUTION_LIMIT, // maxSolutions erreicht, es kann weitere Lösungen geben
+        TIMEOUT,        // Zeitlimit überschritten
+        NODE_LIMIT,     // Knotenbudget aufgebraucht
+        CANCELLED;      // cancel(), Token oder Thread.interrupt()
+        
+        /**
+         * true, wenn die Suche vorzeitig abgebrochen wurde.
+         */
+        public boolean isPartial() {
+            return this == TIMEOUT || this == NODE_LIMIT || this == CANCELLED;
+        }
+    }
+    
+    /**
+     * Setzt das Maximum der zu findenden Lösungen.
+     */
+    void setMaxSolutions(int max);
+    
+    /**
+     * Begrenzt die Laufzeit jeder folgenden Suche (Millisekunden, 0 = unbegrenzt).
+     */
+    void setTimeLimit(long millis);
+    
+    /**
+     * Begrenzt die Anzahl der Suchknoten jeder folgenden Suche (0 = unbegrenzt).
+     */
+    void setNodeLimit(long nodes);
+    
+    /**
+     * Setzt ein Token, über das die Suche von außen abgebrochen werden kann.
+     */
+    void setCancellationToken(CancellationToken token);
+    
+    /**
+     * Bricht eine laufende Suche ab, auch aus dem Consumer von solve() heraus.
+     */
+    void cancel();
+    
+    /**
+     * Setzt ein Objekt für Zähler und Zeiten (null schaltet die Messung ab).
+     */
+    void setStats(SolverStats stats);
+    
+    SolverStats getStats();
+    
+    /**
+     * Anzahl der Threads für eine Suche. Solver ohne parallele Suche
+     * ignorieren den Wert.
+     */
+    void setParallelism(int threads);
+    
+    /**
+     * Löst das Problem und gibt alle gefundenen Lösungen zurück.
+     */
+    List<Grid> solve();
+    
+    /**
+     * Löst das Problem und übergibt jede Lösung sofort an den Consumer
+     * (Streaming). Der Consumer wird nie gleichzeitig aufgerufen.
+     */
+    void solve(Consumer<Grid> consumer);
+    
+    /**
+     * Berechnet die kombinierte Ausgabe ('?' = mehrdeutig) direkt, ohne alle
+     * Lösungen aufzuzählen. Gibt null zurück, wenn es keine Lösung gibt.
+     */
+    Grid solveBackbone();
+    
+    /**
+     * Gibt zurück, wie die letzte Suche geendet hat.
+     */
+    Status getStatus();
+    
+    /**
+     * Gibt die Zellen zurück, die ohne Suche feststehen (offen = -1), oder
+     * null, wenn schon dabei ein Widerspruch gefunden wurde.
+     */
+    Grid getCertainCells();
+    
+    /**
+     * Gibt die Anzahl der Entscheidungen (Suchknoten) der letzten Suche zurück.
+     */
+    long getNodeCount();
+}
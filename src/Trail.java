@@ -0,0 +1,67 @@
+/**
+ * Zuweisungs-Trail für das Backtracking ohne Grid-Kopien.
+ * Jede Zuweisung wird als Zellindex (row * size + col) auf einen Stack gelegt.
+ * Vor einer Entscheidung merkt sich der Solver die aktuelle Höhe (Checkpoint)
+ * und setzt beim Zurückgehen alle Zellen darüber wieder auf -1.
+ */
+public class Trail {
+    private final int size;
+    private final int[] cells;
+    private int top;
+    
+    public Trail(int size) {
+        this.size = size;
+        // Jede Zelle wird auf einem Pfad höchstens einmal zugewiesen
+        this.cells = new int[size * size];
+        this.top = 0;
+    }
+    
+    /**
+     * Setzt eine Zelle im Grid und merkt sie sich für das Rückgängigmachen.
+     */
+    public void assign(Grid grid, int row, int col, int value) {
+        grid.set(row, col, value);
+        cells[top++] = row * size + col;
+    }
+    
+    /**
+     * Gibt einen Checkpoint zurück, bis zu dem später zurückgesetzt werden kann.
+     */
+    public int mark() {
+        return top;
+    }
+    
+    /**
+     * Macht alle Zuweisungen seit dem Checkpoint rückgängig.
+     */
+    public void undo(Grid grid, int mark) {
+        while (top > mark) {
+            int cell = cells[--top];
+            grid.set(cell / size, cell % size, -1);
+        }
+    }
+    
+    /**
+     * Macht die letzte Zuweisung rückgängig und gibt ihren Zellindex zurück.
+     */
+    public int undoLast(Grid grid) {
+        int cell = cells[--top];
+        grid.set(cell / size, cell % size, -1);
+        return cell;
+    }
+    
+    /**
+     * Zellindex der i-ten Zuweisung (0 = älteste).
+     */
+    public int get(int i) {
+        return cells[i];
+    }
+    
+    public void clear() {
+        top = 0;
+    }
+    
+    public int size() {
+        return top;
+    }
+}